@@ -0,0 +1,335 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+/**
+ * A detective player using iterative deepening paranoid alpha-beta over {@link SearchState}:
+ * the detectives, one ply each, maximise and Mr X minimises.
+ * <br>
+ * The detectives don't know where Mr X is, so {@link MrXBeliefTracker} narrows it down to a set
+ * of candidates and up to {@link #MAX_SCENARIOS} of them are searched as separate scenarios. A
+ * root move scores the sum over the scenarios, so every scenario searches every root move; each
+ * of those searches starts with an aspiration window around its score from the last iteration.
+ * Children are ordered by the {@link TranspositionTable} move, then by distance to Mr X.
+ * <br>
+ * It also plays Mr X, who knows where he is: the search then has the one scenario at his real
+ * location and picks the root move with the lowest score.
+ * <br>
+ * Time is split into a soft and a hard deadline. No new iteration starts after the soft one;
+ * at the hard one, or as soon as {@code terminate} is set, the running iteration is thrown away
+ * and the best move of the last completed one is returned. The move time should be set below the
+ * timeout configured in the UI, which an {@link Ai} has no way of reading. Depth and nodes per
+ * second are logged every move.
+ */
+public class AlphaBetaDetectiveAi implements Ai {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AlphaBetaDetectiveAi.class);
+
+	/**
+	 * How long to think per move when not told otherwise, well inside the default move time
+	 */
+	public static final Duration DEFAULT_MOVE_TIME = Duration.ofSeconds(3);
+	/**
+	 * The most candidate Mr X locations searched per move
+	 */
+	public static final int MAX_SCENARIOS = 8;
+
+	private static final int WIN = 1_000_000;
+	private static final int INFINITY = WIN + 1;
+	private static final int ASPIRATION = 50;
+	private static final int MAX_DEPTH = 64;
+	// how often, in nodes, the deadline and terminate flag are checked
+	private static final int CHECK_INTERVAL = 1024;
+
+	private final Duration moveTime;
+	private final TranspositionTable table;
+	private final TranspositionTable.Entry entry = new TranspositionTable.Entry();
+	private final MoveBuffer[] buffers = new MoveBuffer[MAX_DEPTH + 1];
+
+	private GameSetup trackedSetup;
+	private MrXBeliefTracker tracker;
+
+	private DistanceTable distances;
+	private AtomicBoolean terminate;
+	private long hardDeadline;
+	private long nodes;
+
+	// thrown to unwind an iteration that ran out of time, no stack trace needed
+	private static final class Timeout extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		Timeout() { super(null, null, false, false); }
+	}
+
+	private static final Timeout TIMEOUT = new Timeout();
+
+	public AlphaBetaDetectiveAi() { this(DEFAULT_MOVE_TIME, 64); }
+
+	/**
+	 * @param moveTime the hard limit per move; no new iteration starts after half of it
+	 * @param tableMegabytes the size of the transposition table
+	 */
+	public AlphaBetaDetectiveAi(@Nonnull Duration moveTime, int tableMegabytes) {
+		this.moveTime = moveTime;
+		this.table = new TranspositionTable(tableMegabytes);
+		for (int i = 0; i < buffers.length; i++) buffers[i] = new MoveBuffer();
+	}
+
+	@Nonnull @Override public String name() { return "Alpha-beta"; }
+
+	@Override public synchronized void onStart() { tracker = null; }
+
+	@Nonnull @Override public synchronized Move pickMove(
+			@Nonnull Board board,
+			@Nonnull AtomicBoolean terminate) {
+		var moves = board.getAvailableMoves().asList();
+		if (moves.size() == 1) return moves.get(0);
+		long start = System.nanoTime();
+		long softDeadline = start + moveTime.toNanos() / 2;
+		this.hardDeadline = start + moveTime.toNanos();
+		this.terminate = terminate;
+		this.nodes = 0;
+		table.newSearch();
+
+		// Mr X's moves all start where he really is, so his side needs no guessing
+		boolean mrXTurn = moves.get(0).commencedBy().isMrX();
+		int[] candidates = mrXTurn ? new int[]{moves.get(0).source()} : candidates(board);
+		SearchState[] scenarios = new SearchState[Math.min(MAX_SCENARIOS, candidates.length)];
+		// spread the scenarios over the candidates, which are in node order
+		for (int i = 0; i < scenarios.length; i++)
+			scenarios[i] = new SearchState(board, candidates[(int) ((long) i * candidates.length / scenarios.length)]);
+		if (scenarios.length == 0) return moves.get(0);
+		distances = DistanceTable.of(board.getSetup(), DistanceTable.Transports.DETECTIVE);
+
+		MoveBuffer rootBuffer = new MoveBuffer();
+		scenarios[0].generateMoves(rootBuffer);
+		int rootCount = rootBuffer.size();
+		if (rootCount == 0) return moves.get(0);
+		long[] rootMoves = new long[rootCount];
+		for (int i = 0; i < rootCount; i++) rootMoves[i] = rootBuffer.get(i);
+		long[] totals = new long[rootCount];
+		int[][] previous = new int[scenarios.length][rootCount];
+		orderByDistance(scenarios[0], rootMoves, rootCount);
+
+		long best = rootMoves[0];
+		int depthReached = 0;
+		for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+			try {
+				for (int i = 0; i < rootCount; i++) {
+					long total = 0;
+					for (int s = 0; s < scenarios.length; s++) {
+						SearchState state = scenarios[s];
+						state.make(rootMoves[i]);
+						int score = depth == 1
+								? search(state, 0, -INFINITY, INFINITY, 1)
+								: aspirate(state, depth - 1, previous[s][i]);
+						state.unmake();
+						previous[s][i] = score;
+						total += score;
+					}
+					// from the point of view of whoever is moving at the root
+					totals[i] = mrXTurn ? -total : total;
+				}
+			} catch (Timeout timeout) {
+				for (SearchState state : scenarios) while (state.depth() > 0) state.unmake();
+				break;
+			}
+			// best first, so the next iteration gets the tightest windows early
+			sortByTotal(rootMoves, totals, previous, rootCount);
+			best = rootMoves[0];
+			depthReached = depth;
+			if (Math.abs(totals[0]) >= (long) scenarios.length * (WIN - MAX_DEPTH)) break;
+			if (System.nanoTime() >= softDeadline || terminate.get()) break;
+		}
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+		LOGGER.info("depth {} over {} scenarios, {} nodes in {} ms ({} nodes/s), picked {}", depthReached,
+				scenarios.length, nodes, Math.round(seconds * 1000), Math.round(nodes / seconds),
+				PackedMove.toString(best));
+		Move picked = PackedMove.unpack(best);
+		if (!board.getAvailableMoves().contains(picked)) {
+			LOGGER.warn("search picked {}, which isn't available, playing {} instead", picked, moves.get(0));
+			return moves.get(0);
+		}
+		return picked;
+	}
+
+	private int[] candidates(Board board) {
+		GameSetup setup = board.getSetup();
+		if (tracker == null || trackedSetup != setup) {
+			SearchGraph graph = SearchGraph.of(setup);
+			boolean standardStarts = ScotlandYard.MRX_LOCATIONS.stream()
+					.allMatch(node -> node <= graph.maxNode() && setup.graph.nodes().contains(node));
+			tracker = standardStarts
+					? new MrXBeliefTracker(setup, ScotlandYard.MRX_LOCATIONS)
+					: new MrXBeliefTracker(setup);
+			trackedSetup = setup;
+		}
+		tracker.update(board);
+		return tracker.candidates();
+	}
+
+	// searches with a narrow window around the guess, widening to a full window if it falls outside
+	private int aspirate(SearchState state, int depth, int guess) {
+		int alpha = guess - ASPIRATION, beta = guess + ASPIRATION;
+		int score = search(state, depth, alpha, beta, 1);
+		if (score <= alpha || score >= beta) score = search(state, depth, -INFINITY, INFINITY, 1);
+		return score;
+	}
+
+	// scores are from the detectives' point of view: they maximise, Mr X minimises
+	private int search(SearchState state, int depth, int alpha, int beta, int ply) {
+		if (++nodes % CHECK_INTERVAL == 0 && (System.nanoTime() >= hardDeadline || terminate.get()))
+			throw TIMEOUT;
+		int winner = state.winner();
+		if (winner == SearchState.DETECTIVES_WIN) return WIN - ply;
+		if (winner == SearchState.MRX_WINS) return -WIN + ply;
+		if (depth == 0 || ply >= MAX_DEPTH) return evaluate(state);
+
+		int originalAlpha = alpha, originalBeta = beta;
+		long key = state.hash();
+		long hashMove = PackedMove.NONE;
+		if (table.probe(key, entry)) {
+			hashMove = entry.move;
+			if (entry.depth >= depth) {
+				int score = fromTable(entry.score, ply);
+				if (entry.bound == TranspositionTable.EXACT) return score;
+				if (entry.bound == TranspositionTable.LOWER) alpha = Math.max(alpha, score);
+				else beta = Math.min(beta, score);
+				if (alpha >= beta) return score;
+			}
+		}
+
+		boolean maximising = !state.isMrXTurn();
+		MoveBuffer moves = buffers[ply];
+		state.generateMoves(moves);
+		order(state, moves, hashMove);
+		int best = maximising ? -INFINITY : INFINITY;
+		long bestMove = PackedMove.NONE;
+		for (int i = 0; i < moves.size(); i++) {
+			long move = moves.get(i);
+			state.make(move);
+			int score = search(state, depth - 1, alpha, beta, ply + 1);
+			state.unmake();
+			if (maximising ? score > best : score < best) {
+				best = score;
+				bestMove = move;
+			}
+			if (maximising) alpha = Math.max(alpha, score);
+			else beta = Math.min(beta, score);
+			if (alpha >= beta) break;
+		}
+
+		int bound = best <= originalAlpha ? TranspositionTable.UPPER
+				: best >= originalBeta ? TranspositionTable.LOWER
+				: TranspositionTable.EXACT;
+		table.store(key, depth, bound, toTable(best, ply), bestMove);
+		return best;
+	}
+
+	// wins are stored as plies from the entry's own position rather than from the root, so they
+	// stay right when the position is reached again at a different ply
+	private static int toTable(int score, int ply) {
+		if (score >= WIN - MAX_DEPTH) return score + ply;
+		if (score <= -WIN + MAX_DEPTH) return score - ply;
+		return score;
+	}
+
+	private static int fromTable(int score, int ply) {
+		if (score >= WIN - MAX_DEPTH) return score - ply;
+		if (score <= -WIN + MAX_DEPTH) return score + ply;
+		return score;
+	}
+
+	// closer detectives are better, the closest one counts most
+	private int evaluate(SearchState state) {
+		int mrX = state.location(SearchState.MRX);
+		int closest = Integer.MAX_VALUE, total = 0;
+		for (int p = 1; p < SearchState.PIECES; p++) {
+			if ((state.detectiveMask() & (1 << p)) == 0) continue;
+			int distance = distances.distance(state.location(p), mrX);
+			if (distance == DistanceTable.UNREACHABLE) distance = distances.maxNode();
+			closest = Math.min(closest, distance);
+			total += distance;
+		}
+		return -(closest * 100 + total * 10);
+	}
+
+	// hash move first, then detective moves towards Mr X and Mr X moves away from the detectives
+	private void order(SearchState state, MoveBuffer moves, long hashMove) {
+		int mrX = state.location(SearchState.MRX);
+		int size = moves.size();
+		int[] keys = new int[size];
+		for (int i = 0; i < size; i++) {
+			long move = moves.get(i);
+			int destination = PackedMove.destination(move);
+			if (move == hashMove) keys[i] = Integer.MIN_VALUE;
+			else if (state.isMrXTurn()) keys[i] = -nearestDetective(state, destination);
+			else keys[i] = distanceOrMax(destination, mrX);
+		}
+		// insertion sort, move lists are short and mostly ordered already
+		for (int i = 1; i < size; i++) {
+			for (int j = i; j > 0 && keys[j] < keys[j - 1]; j--) {
+				int key = keys[j];
+				keys[j] = keys[j - 1];
+				keys[j - 1] = key;
+				moves.swap(j, j - 1);
+			}
+		}
+	}
+
+	private void orderByDistance(SearchState state, long[] moves, int size) {
+		int mrX = state.location(SearchState.MRX);
+		for (int i = 1; i < size; i++) {
+			for (int j = i; j > 0 && distanceOrMax(PackedMove.destination(moves[j]), mrX)
+					< distanceOrMax(PackedMove.destination(moves[j - 1]), mrX); j--) {
+				long move = moves[j];
+				moves[j] = moves[j - 1];
+				moves[j - 1] = move;
+			}
+		}
+	}
+
+	private static void sortByTotal(long[] moves, long[] totals, int[][] previous, int size) {
+		for (int i = 1; i < size; i++) {
+			for (int j = i; j > 0 && totals[j] > totals[j - 1]; j--) {
+				long move = moves[j];
+				moves[j] = moves[j - 1];
+				moves[j - 1] = move;
+				long total = totals[j];
+				totals[j] = totals[j - 1];
+				totals[j - 1] = total;
+				for (int[] scores : previous) {
+					int score = scores[j];
+					scores[j] = scores[j - 1];
+					scores[j - 1] = score;
+				}
+			}
+		}
+	}
+
+	private int nearestDetective(SearchState state, int node) {
+		int nearest = Integer.MAX_VALUE;
+		for (int p = 1; p < SearchState.PIECES; p++)
+			if ((state.detectiveMask() & (1 << p)) != 0)
+				nearest = Math.min(nearest, distanceOrMax(state.location(p), node));
+		return nearest;
+	}
+
+	private int distanceOrMax(int from, int to) {
+		int distance = distances.distance(from, to);
+		return distance == DistanceTable.UNREACHABLE ? distances.maxNode() : distance;
+	}
+}
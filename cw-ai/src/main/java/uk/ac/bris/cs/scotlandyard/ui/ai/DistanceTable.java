@@ -0,0 +1,128 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * All pairs shortest path lengths (in moves) over the edges usable with a set of tickets,
+ * answered in O(1) from one row per source node. A row is filled by a BFS the first time its
+ * source is asked about, so a table only holds the rows a game uses and works on maps up to
+ * {@link SearchGraph#MAX_NODE}, where the full table would not fit in memory.
+ */
+public final class DistanceTable {
+
+	/**
+	 * Returned by {@link #distance(int, int)} when there is no path
+	 */
+	public static final int UNREACHABLE = -1;
+
+	/**
+	 * The edges a distance may use
+	 */
+	public enum Transports {
+		/**
+		 * Taxi routes only
+		 */
+		TAXI(Ticket.TAXI),
+		/**
+		 * Taxi and bus routes
+		 */
+		TAXI_BUS(Ticket.TAXI, Ticket.BUS),
+		/**
+		 * Every route a detective can use: taxi, bus and underground
+		 */
+		DETECTIVE(Ticket.TAXI, Ticket.BUS, Ticket.UNDERGROUND),
+		/**
+		 * Every route including the ferry, i.e. what Mr X can use with secret tickets
+		 */
+		ALL(Ticket.TAXI, Ticket.BUS, Ticket.UNDERGROUND, Ticket.SECRET);
+
+		private final int mask;
+
+		Transports(Ticket... tickets) {
+			int mask = 0;
+			for (Ticket ticket : tickets) mask |= SearchGraph.mask(ticket);
+			this.mask = mask;
+		}
+	}
+
+	// distances are below 0xFFFF as node ids fit in 16 bits, which leaves it free for no path
+	private static final char NONE = 0xFFFF;
+	private static final VarHandle ROWS = MethodHandles.arrayElementVarHandle(char[][].class);
+
+	private final SearchGraph graph;
+	private final int mask;
+	private final char[][] rows;
+
+	private DistanceTable(SearchGraph graph, Transports transports) {
+		this.graph = graph;
+		this.mask = transports.mask;
+		this.rows = new char[graph.maxNode() + 1][];
+	}
+
+	/**
+	 * @param setup the game setup
+	 * @param transports the edges to use
+	 * @return the table for the setup's graph, computed on first use and cached with the graph
+	 */
+	@Nonnull public static DistanceTable of(@Nonnull GameSetup setup, @Nonnull Transports transports) {
+		return SearchGraph.of(setup).distances(transports);
+	}
+
+	/**
+	 * @param graph the graph
+	 * @param transports the edges to use
+	 * @return a new table, not cached; prefer {@link #of(GameSetup, Transports)}
+	 */
+	@Nonnull public static DistanceTable compute(@Nonnull SearchGraph graph, @Nonnull Transports transports) {
+		return new DistanceTable(graph, transports);
+	}
+
+	/**
+	 * @param from the source node
+	 * @param to the destination node
+	 * @return the least number of moves from one node to the other, or {@link #UNREACHABLE}
+	 */
+	public int distance(int from, int to) {
+		char[] row = (char[]) ROWS.getAcquire(rows, from);
+		if (row == null) {
+			// threads racing on a row compute the same one, so the last write can win
+			row = bfs(from);
+			ROWS.setRelease(rows, from, row);
+		}
+		char distance = row[to];
+		return distance == NONE ? UNREACHABLE : distance;
+	}
+
+	/**
+	 * @return the largest node id in the table
+	 */
+	public int maxNode() { return rows.length - 1; }
+
+	private char[] bfs(int source) {
+		char[] row = new char[rows.length];
+		Arrays.fill(row, NONE);
+		int[] queue = new int[rows.length];
+		int head = 0, tail = 0;
+		row[source] = 0;
+		queue[tail++] = source;
+		while (head < tail) {
+			int node = queue[head++];
+			char next = (char) (row[node] + 1);
+			for (int edge = graph.start(node); edge < graph.end(node); edge++) {
+				if ((graph.tickets(edge) & mask) == 0) continue;
+				int neighbour = graph.neighbour(edge);
+				if (row[neighbour] != NONE) continue;
+				row[neighbour] = next;
+				queue[tail++] = neighbour;
+			}
+		}
+		return row;
+	}
+}
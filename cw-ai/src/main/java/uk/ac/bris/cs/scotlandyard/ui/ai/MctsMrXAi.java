@@ -0,0 +1,338 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+
+/**
+ * A Mr X player using Monte Carlo tree search over {@link SearchState}.
+ * <br>
+ * Every core searches one shared tree. Children are picked by UCT; a thread counts a visit on
+ * the way down and only adds the win on the way back, so a path another thread is still playing
+ * out looks like a loss for a moment (a virtual loss) and threads spread over the tree instead of
+ * all following the same line. Leaves are scored by a light playout: Mr X avoids nodes next to a
+ * detective and saves his double tickets, detectives mostly step towards Mr X.
+ * <br>
+ * The search knows where Mr X is, so it plays as if the detectives did too; this errs on the
+ * safe side. It stops at the think time or as soon as {@code terminate} is set, and logs the
+ * playouts per second of every move. The think time starts once the distance tables of the map
+ * are built, which the first move of a game may take a while over.
+ * <br>
+ * The detectives can't see Mr X, which this search relies on, so their moves are delegated to an
+ * {@link AlphaBetaDetectiveAi} with the same think time.
+ */
+public class MctsMrXAi implements Ai {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MctsMrXAi.class);
+
+	/**
+	 * How long to think per move when not told otherwise, well inside the default move time
+	 */
+	public static final Duration DEFAULT_THINK_TIME = Duration.ofSeconds(3);
+
+	private static final double EXPLORATION = Math.sqrt(2);
+	private static final double GREEDY_DETECTIVES = 0.7;
+	private static final int SAFE_MOVE_TRIES = 8;
+	private static final int MAX_TREE_DEPTH = 256;
+
+	private static final VarHandle VISITS;
+	private static final VarHandle WINS;
+	private static final VarHandle CHILDREN = MethodHandles.arrayElementVarHandle(Node[].class);
+
+	static {
+		try {
+			var lookup = MethodHandles.lookup();
+			VISITS = lookup.findVarHandle(Node.class, "visits", int.class);
+			WINS = lookup.findVarHandle(Node.class, "wins", int.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private static final int DETECTIVE_TABLE_MEGABYTES = 16;
+
+	private final Duration thinkTime;
+	private final int threads;
+	private ExecutorService executor;
+	// made on the first detective move, most games only play Mr X
+	private AlphaBetaDetectiveAi detectives;
+
+	private volatile long lastPlayouts;
+	private volatile double lastPlayoutsPerSecond;
+
+	public MctsMrXAi() { this(DEFAULT_THINK_TIME, Runtime.getRuntime().availableProcessors()); }
+
+	/**
+	 * @param thinkTime how long to search each move for, unless terminated sooner
+	 * @param threads the number of search threads
+	 */
+	public MctsMrXAi(@Nonnull Duration thinkTime, int threads) {
+		if (threads < 1) throw new IllegalArgumentException("Need at least one thread, got " + threads);
+		this.thinkTime = thinkTime;
+		this.threads = threads;
+	}
+
+	@Nonnull @Override public String name() { return "MCTS"; }
+
+	@Override public synchronized void onStart() { executor(); }
+
+	@Override public synchronized void onTerminate() {
+		if (executor != null) executor.shutdownNow();
+		executor = null;
+		if (detectives != null) detectives.onTerminate();
+		detectives = null;
+	}
+
+	@Nonnull @Override public Move pickMove(
+			@Nonnull Board board,
+			@Nonnull AtomicBoolean terminate) {
+		var moves = board.getAvailableMoves().asList();
+		if (moves.size() == 1) return moves.get(0);
+		if (moves.get(0).commencedBy().isDetective()) return detectives().pickMove(board, terminate);
+
+		// built once per map, outside the think time; distance rows fill in as playouts need them
+		DistanceTable distances = DistanceTable.of(board.getSetup(), DistanceTable.Transports.DETECTIVE);
+		Zobrist.of(SearchGraph.of(board.getSetup()));
+		ExecutorService executor = executor();
+		long start = System.nanoTime();
+		long deadline = start + thinkTime.toNanos();
+		Node root = new Node(PackedMove.NONE, false);
+		LongAdder playouts = new LongAdder();
+		AtomicBoolean stop = new AtomicBoolean();
+		List<Future<?>> workers = new ArrayList<>(threads);
+		for (int i = 0; i < threads; i++)
+			workers.add(executor.submit(() -> search(board, distances, root, playouts, stop, terminate, deadline)));
+		try {
+			for (Future<?> worker : workers) worker.get();
+		} catch (InterruptedException e) {
+			stop.set(true);
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			stop.set(true);
+			throw new IllegalStateException("Search failed", e.getCause());
+		}
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+		lastPlayouts = playouts.sum();
+		lastPlayoutsPerSecond = lastPlayouts / seconds;
+		long best = root.mostVisited();
+		LOGGER.info("{} playouts in {} ms ({} playouts/s) on {} threads, picked {}", lastPlayouts,
+				Math.round(seconds * 1000), Math.round(lastPlayoutsPerSecond), threads,
+				best == PackedMove.NONE ? "nothing" : PackedMove.toString(best));
+		// nothing was searched if we were terminated straight away, any legal move will do
+		return best == PackedMove.NONE ? moves.get(0) : PackedMove.unpack(best);
+	}
+
+	/**
+	 * @return the number of playouts of the last move
+	 */
+	public long lastPlayouts() { return lastPlayouts; }
+
+	/**
+	 * @return the playouts per second of the last move, for comparing engine throughput
+	 */
+	public double lastPlayoutsPerSecond() { return lastPlayoutsPerSecond; }
+
+	private synchronized AlphaBetaDetectiveAi detectives() {
+		if (detectives == null) {
+			detectives = new AlphaBetaDetectiveAi(thinkTime, DETECTIVE_TABLE_MEGABYTES);
+			detectives.onStart();
+		}
+		return detectives;
+	}
+
+	private synchronized ExecutorService executor() {
+		if (executor == null) executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "mcts-worker");
+			thread.setDaemon(true);
+			return thread;
+		});
+		return executor;
+	}
+
+	private static void search(Board board, DistanceTable distances, Node root, LongAdder playouts,
+	                           AtomicBoolean stop, AtomicBoolean terminate, long deadline) {
+		SearchState state = new SearchState(board);
+		MoveBuffer buffer = new MoveBuffer();
+		Node[] path = new Node[MAX_TREE_DEPTH];
+		int rootDepth = state.depth();
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		while (!stop.get()) {
+			if (terminate.get() || System.nanoTime() >= deadline) {
+				stop.set(true);
+				break;
+			}
+			VISITS.getAndAdd(root, 1);
+			int length = 0;
+			Node node = root;
+			// selection and expansion, stopping at the first node nobody has visited before
+			while (length < MAX_TREE_DEPTH && state.winner() == SearchState.NONE) {
+				long[] moves = node.expand(state, buffer);
+				Node child = node.child(select(node, moves, random), moves, state.isMrXTurn());
+				boolean fresh = (int) VISITS.getAndAdd(child, 1) == 0;
+				state.make(child.move);
+				path[length++] = child;
+				node = child;
+				if (fresh) break;
+			}
+			boolean mrXWins = playout(state, buffer, distances, random);
+			if (mrXWins) WINS.getAndAdd(root, 1);
+			for (int i = 0; i < length; i++)
+				if (path[i].byMrX == mrXWins) WINS.getAndAdd(path[i], 1);
+			while (state.depth() > rootDepth) state.unmake();
+			playouts.increment();
+		}
+	}
+
+	// UCT over the children, unvisited ones first starting from a random index
+	private static int select(Node node, long[] moves, ThreadLocalRandom random) {
+		double logParent = Math.log(Math.max(1, (int) VISITS.getOpaque(node)));
+		int offset = random.nextInt(moves.length);
+		int best = offset;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < moves.length; i++) {
+			int index = (i + offset) % moves.length;
+			Node child = (Node) CHILDREN.getAcquire(node.children, index);
+			if (child == null) return index;
+			int visits = (int) VISITS.getOpaque(child);
+			if (visits == 0) return index;
+			double value = (int) WINS.getOpaque(child) / (double) visits
+					+ EXPLORATION * Math.sqrt(logParent / visits);
+			if (value > bestValue) {
+				bestValue = value;
+				best = index;
+			}
+		}
+		return best;
+	}
+
+	// plays the game out and returns whether Mr X won, leaves the moves on the state
+	private static boolean playout(SearchState state, MoveBuffer buffer,
+	                               DistanceTable distances, ThreadLocalRandom random) {
+		int winner;
+		while ((winner = state.winner()) == SearchState.NONE) {
+			state.generateMoves(buffer);
+			state.make(state.isMrXTurn()
+					? mrXPlayoutMove(state, buffer, distances, random)
+					: detectivePlayoutMove(state, buffer, distances, random));
+		}
+		return winner == SearchState.MRX_WINS;
+	}
+
+	private static long mrXPlayoutMove(SearchState state, MoveBuffer moves,
+	                                   DistanceTable distances, ThreadLocalRandom random) {
+		// single moves are generated first
+		int singles = 0;
+		while (singles < moves.size() && !PackedMove.isDouble(moves.get(singles))) singles++;
+		for (int i = 0; i < SAFE_MOVE_TRIES && singles > 0; i++) {
+			long move = moves.get(random.nextInt(singles));
+			if (isSafe(state, PackedMove.destination(move), distances)) return move;
+		}
+		for (int i = 0; i < SAFE_MOVE_TRIES && singles < moves.size(); i++) {
+			long move = moves.get(singles + random.nextInt(moves.size() - singles));
+			if (isSafe(state, PackedMove.destination(move), distances)) return move;
+		}
+		return moves.get(random.nextInt(moves.size()));
+	}
+
+	private static long detectivePlayoutMove(SearchState state, MoveBuffer moves,
+	                                         DistanceTable distances, ThreadLocalRandom random) {
+		if (random.nextDouble() >= GREEDY_DETECTIVES) return moves.get(random.nextInt(moves.size()));
+		int mrX = state.location(SearchState.MRX);
+		long best = moves.get(0);
+		int bestDistance = Integer.MAX_VALUE;
+		for (int i = 0; i < moves.size(); i++) {
+			long move = moves.get(i);
+			int distance = distances.distance(PackedMove.destination(move), mrX);
+			if (distance == DistanceTable.UNREACHABLE) distance = Integer.MAX_VALUE - 1;
+			if (distance < bestDistance || (distance == bestDistance && random.nextBoolean())) {
+				bestDistance = distance;
+				best = move;
+			}
+		}
+		return best;
+	}
+
+	// whether no detective can reach the node in one move
+	private static boolean isSafe(SearchState state, int node, DistanceTable distances) {
+		for (int p = 1; p < SearchState.PIECES; p++) {
+			if ((state.detectiveMask() & (1 << p)) == 0) continue;
+			int distance = distances.distance(state.location(p), node);
+			if (distance != DistanceTable.UNREACHABLE && distance <= 1) return false;
+		}
+		return true;
+	}
+
+	private static final class Node {
+		final long move;
+		// whether Mr X made the move into this node, wins count for whoever did
+		final boolean byMrX;
+		volatile long[] moves;
+		Node[] children;
+		@SuppressWarnings("unused") int visits;
+		@SuppressWarnings("unused") int wins;
+
+		Node(long move, boolean byMrX) {
+			this.move = move;
+			this.byMrX = byMrX;
+		}
+
+		long[] expand(SearchState state, MoveBuffer buffer) {
+			long[] moves = this.moves;
+			if (moves != null) return moves;
+			synchronized (this) {
+				if (this.moves == null) {
+					state.generateMoves(buffer);
+					long[] generated = new long[buffer.size()];
+					for (int i = 0; i < generated.length; i++) generated[i] = buffer.get(i);
+					children = new Node[generated.length];
+					this.moves = generated;
+				}
+				return this.moves;
+			}
+		}
+
+		Node child(int index, long[] moves, boolean byMrX) {
+			Node child = (Node) CHILDREN.getAcquire(children, index);
+			if (child != null) return child;
+			Node created = new Node(moves[index], byMrX);
+			Node witness = (Node) CHILDREN.compareAndExchange(children, index, null, created);
+			return witness == null ? created : witness;
+		}
+
+		long mostVisited() {
+			long[] moves = this.moves;
+			if (moves == null) return PackedMove.NONE;
+			long best = PackedMove.NONE;
+			int bestVisits = 0;
+			for (int i = 0; i < moves.length; i++) {
+				Node child = (Node) CHILDREN.getAcquire(children, i);
+				if (child == null) continue;
+				int visits = (int) VISITS.getOpaque(child);
+				if (visits > bestVisits) {
+					bestVisits = visits;
+					best = child.move;
+				}
+			}
+			return best;
+		}
+	}
+}
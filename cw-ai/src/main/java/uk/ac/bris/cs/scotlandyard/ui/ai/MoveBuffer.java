@@ -0,0 +1,65 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of {@link PackedMove}s. Keep one buffer per search ply and {@link #clear()} it
+ * between nodes so move generation stops allocating once the buffer has grown large enough.
+ */
+public final class MoveBuffer {
+
+	private long[] moves;
+	private int size;
+
+	/**
+	 * Creates an empty buffer with room for a typical Mr X turn
+	 */
+	public MoveBuffer() { this.moves = new long[512]; }
+
+	/**
+	 * @param move the packed move to append
+	 */
+	public void add(long move) {
+		if (size == moves.length) moves = Arrays.copyOf(moves, size * 2);
+		moves[size++] = move;
+	}
+
+	/**
+	 * @param index the index, must be less than {@link #size()}
+	 * @return the packed move at the index
+	 */
+	public long get(int index) { return moves[index]; }
+
+	/**
+	 * Swaps two moves, used to order moves in place
+	 */
+	public void swap(int i, int j) {
+		long move = moves[i];
+		moves[i] = moves[j];
+		moves[j] = move;
+	}
+
+	/**
+	 * @return the number of moves
+	 */
+	public int size() { return size; }
+
+	/**
+	 * @return whether the buffer is empty
+	 */
+	public boolean isEmpty() { return size == 0; }
+
+	/**
+	 * Removes all moves, keeping the backing array
+	 */
+	public void clear() { size = 0; }
+
+	/**
+	 * @param move the packed move
+	 * @return whether the buffer contains the move
+	 */
+	public boolean contains(long move) {
+		for (int i = 0; i < size; i++) if (moves[i] == move) return true;
+		return false;
+	}
+}
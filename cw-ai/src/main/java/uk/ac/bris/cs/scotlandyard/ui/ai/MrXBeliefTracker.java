@@ -0,0 +1,158 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.LogEntry;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Tracks the nodes Mr X could be on from his travel log, as a bitset where bit {@code n} is set
+ * if node {@code n} is a candidate.
+ * <br>
+ * Every log entry moves the set one step: the new set is every neighbour of a candidate along an
+ * edge the ticket used can travel, found from the {@link SearchGraph} edges of each candidate, or
+ * just the revealed node on a reveal round. Nodes with a detective on them are then removed,
+ * since Mr X would have been caught there. Memory grows with the number of nodes, not its square,
+ * so large generated maps are fine.
+ * <br>
+ * Call {@link #update(Board)} once per turn; only log entries added since the last call are
+ * applied.
+ */
+public final class MrXBeliefTracker {
+
+	private final SearchGraph graph;
+	private final int words;
+	private final long[] initial;
+
+	private long[] candidates;
+	private long[] next;
+	private int applied;
+
+	/**
+	 * Starts with every node of the graph as a candidate.
+	 *
+	 * @param setup the game setup
+	 */
+	public MrXBeliefTracker(@Nonnull GameSetup setup) { this(setup, setup.graph.nodes()); }
+
+	/**
+	 * @param setup the game setup
+	 * @param starts the nodes Mr X could have started on
+	 */
+	public MrXBeliefTracker(@Nonnull GameSetup setup, @Nonnull Iterable<Integer> starts) {
+		this.graph = SearchGraph.of(setup);
+		this.words = (graph.maxNode() >>> 6) + 1;
+		this.initial = new long[words];
+		for (int node : starts) initial[node >>> 6] |= 1L << node;
+		this.candidates = initial.clone();
+		this.next = new long[words];
+	}
+
+	/**
+	 * Applies the log entries added since the last update and removes the nodes detectives are on.
+	 *
+	 * @param board the current board
+	 */
+	public void update(@Nonnull Board board) {
+		ImmutableList<LogEntry> log = board.getMrXTravelLog();
+		if (log.size() < applied) reset();
+		for (int i = applied; i < log.size(); i++) {
+			LogEntry entry = log.get(i);
+			apply(entry.ticket(), entry.location().orElse(-1));
+		}
+		applied = log.size();
+		for (Piece piece : board.getPlayers())
+			if (piece.isDetective())
+				board.getDetectiveLocation((Piece.Detective) piece).ifPresent(this::remove);
+	}
+
+	/**
+	 * Moves the candidate set one step.
+	 *
+	 * @param ticket the ticket Mr X used
+	 * @param revealed the revealed location, or -1 on a hidden round
+	 */
+	public void apply(@Nonnull Ticket ticket, int revealed) {
+		if (revealed != -1) {
+			Arrays.fill(candidates, 0);
+			candidates[revealed >>> 6] = 1L << revealed;
+			return;
+		}
+		long[] next = this.next;
+		Arrays.fill(next, 0);
+		// a secret ticket goes along any edge
+		int usable = ticket == Ticket.SECRET ? -1 : SearchGraph.mask(ticket);
+		for (int w = 0; w < words; w++) {
+			long word = candidates[w];
+			while (word != 0) {
+				int node = (w << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+				for (int edge = graph.start(node); edge < graph.end(node); edge++) {
+					if ((graph.tickets(edge) & usable) == 0) continue;
+					int neighbour = graph.neighbour(edge);
+					next[neighbour >>> 6] |= 1L << neighbour;
+				}
+			}
+		}
+		this.next = candidates;
+		this.candidates = next;
+	}
+
+	/**
+	 * @param node a node Mr X can't be on, e.g. one a detective stands on
+	 */
+	public void remove(int node) { candidates[node >>> 6] &= ~(1L << node); }
+
+	/**
+	 * Forgets the log applied so far and starts again from the starting candidates.
+	 */
+	public void reset() {
+		candidates = initial.clone();
+		applied = 0;
+	}
+
+	/**
+	 * @param node the node
+	 * @return whether Mr X could be on the node
+	 */
+	public boolean contains(int node) {
+		return node >= 0 && node <= graph.maxNode() && (candidates[node >>> 6] & (1L << node)) != 0;
+	}
+
+	/**
+	 * @return the number of nodes Mr X could be on
+	 */
+	public int count() {
+		int count = 0;
+		for (long word : candidates) count += Long.bitCount(word);
+		return count;
+	}
+
+	/**
+	 * @return the candidate nodes in ascending order
+	 */
+	@Nonnull public int[] candidates() {
+		int[] nodes = new int[count()];
+		int i = 0;
+		for (int w = 0; w < words; w++) {
+			long word = candidates[w];
+			while (word != 0) {
+				nodes[i++] = (w << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+			}
+		}
+		return nodes;
+	}
+
+	/**
+	 * @return a copy of the candidate bitset
+	 */
+	@Nonnull public long[] bits() { return candidates.clone(); }
+}
@@ -0,0 +1,146 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Static helpers for moves packed into a {@code long} so search never allocates a {@link Move}.
+ * Two moves are equal if and only if their packed values are equal.
+ * <br>
+ * Layout, from the least significant bit:
+ * <pre>
+ * bits  0-15  source
+ * bits 16-31  destination (first destination of a double move)
+ * bits 32-47  second destination, 0 for single moves
+ * bits 48-50  ticket (first ticket of a double move), {@link Ticket#ordinal()}
+ * bits 51-53  second ticket, 0 for single moves
+ * bits 54-56  piece, see {@link #pieceIndex(Piece)}
+ * bit  57     set for double moves
+ * </pre>
+ * {@link #NONE} is never a valid move.
+ */
+public final class PackedMove {
+
+	/**
+	 * Placeholder for "no move", e.g. an empty transposition table entry
+	 */
+	public static final long NONE = 0;
+
+	private static final Ticket[] TICKETS = Ticket.values();
+	private static final Piece[] PIECES = {Piece.MrX.MRX,
+			Piece.Detective.RED, Piece.Detective.GREEN, Piece.Detective.BLUE,
+			Piece.Detective.WHITE, Piece.Detective.YELLOW};
+
+	private static final int NODE_MASK = 0xFFFF;
+	private static final long DOUBLE_BIT = 1L << 57;
+
+	private PackedMove() {}
+
+	/**
+	 * @param piece the piece
+	 * @return 0 for Mr X, 1 + {@link Piece.Detective#ordinal()} for detectives
+	 */
+	public static int pieceIndex(@Nonnull Piece piece) {
+		return piece.isMrX() ? 0 : 1 + ((Piece.Detective) piece).ordinal();
+	}
+
+	/**
+	 * @param index the index, see {@link #pieceIndex(Piece)}
+	 * @return the piece with the given index
+	 */
+	@Nonnull public static Piece piece(int index) { return PIECES[index]; }
+
+	/**
+	 * @return the packed single move
+	 */
+	public static long single(int piece, int source, int ticket, int destination) {
+		return (long) piece << 54 | (long) ticket << 48 | (long) destination << 16 | source;
+	}
+
+	/**
+	 * @return the packed double move
+	 */
+	public static long doubleMove(int piece, int source,
+	                              int ticket1, int destination1,
+	                              int ticket2, int destination2) {
+		return DOUBLE_BIT | (long) piece << 54 | (long) ticket2 << 51 | (long) ticket1 << 48
+				| (long) destination2 << 32 | (long) destination1 << 16 | source;
+	}
+
+	/**
+	 * @param move the move
+	 * @return the packed move
+	 */
+	public static long pack(@Nonnull Move move) {
+		if (move instanceof SingleMove) {
+			SingleMove m = (SingleMove) move;
+			return single(pieceIndex(m.commencedBy()), m.source(), m.ticket.ordinal(), m.destination);
+		}
+		DoubleMove m = (DoubleMove) move;
+		return doubleMove(pieceIndex(m.commencedBy()), m.source(),
+				m.ticket1.ordinal(), m.destination1, m.ticket2.ordinal(), m.destination2);
+	}
+
+	/**
+	 * @param move the packed move
+	 * @return a new {@link Move} equal to the packed one
+	 */
+	@Nonnull public static Move unpack(long move) {
+		Piece piece = PIECES[piece(move)];
+		if (isDouble(move)) return new DoubleMove(piece, source(move),
+				TICKETS[ticket1(move)], destination1(move), TICKETS[ticket2(move)], destination2(move));
+		return new SingleMove(piece, source(move), TICKETS[ticket1(move)], destination1(move));
+	}
+
+	/**
+	 * @return whether the packed move is a double move
+	 */
+	public static boolean isDouble(long move) { return (move & DOUBLE_BIT) != 0; }
+
+	/**
+	 * @return the piece index of the packed move
+	 */
+	public static int piece(long move) { return (int) (move >>> 54) & 7; }
+
+	/**
+	 * @return the source of the packed move
+	 */
+	public static int source(long move) { return (int) move & NODE_MASK; }
+
+	/**
+	 * @return the ticket ordinal of a single move or the first ticket of a double move
+	 */
+	public static int ticket1(long move) { return (int) (move >>> 48) & 7; }
+
+	/**
+	 * @return the destination of a single move or the first destination of a double move
+	 */
+	public static int destination1(long move) { return (int) (move >>> 16) & NODE_MASK; }
+
+	/**
+	 * @return the second ticket ordinal of a double move
+	 */
+	public static int ticket2(long move) { return (int) (move >>> 51) & 7; }
+
+	/**
+	 * @return the second destination of a double move
+	 */
+	public static int destination2(long move) { return (int) (move >>> 32) & NODE_MASK; }
+
+	/**
+	 * @return where the piece ends up after the whole move
+	 */
+	public static int destination(long move) {
+		return isDouble(move) ? destination2(move) : destination1(move);
+	}
+
+	/**
+	 * @return a human readable form matching {@link Move#toString()}
+	 */
+	@Nonnull public static String toString(long move) { return unpack(move).toString(); }
+}
@@ -0,0 +1,149 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * An array backed (CSR) copy of the game graph for allocation free neighbour iteration in search.
+ * <br>
+ * The neighbours of {@code node} are at edge indices {@link #start(int)} (inclusive) to
+ * {@link #end(int)} (exclusive) in ascending node order; {@link #tickets(int)} has bit
+ * {@code Ticket.ordinal()} set for every ticket that can be used along the edge.
+ */
+public final class SearchGraph {
+
+	// weak keys compare by identity so setups sharing a graph share the compiled copy
+	private static final LoadingCache<ImmutableValueGraph<Integer, ImmutableSet<Transport>>, SearchGraph>
+			CACHE = CacheBuilder.newBuilder().weakKeys().build(CacheLoader.from(SearchGraph::compile));
+
+	/**
+	 * The largest node id that can be compiled, as {@link PackedMove} packs nodes into 16 bits
+	 */
+	public static final int MAX_NODE = 0xFFFF;
+
+	private final int maxNode;
+	private final int[] offsets;
+	private final int[] neighbours;
+	private final byte[] tickets;
+	private volatile Zobrist zobrist;
+	private volatile TicketReachability reachability;
+	private final DistanceTable[] distances = new DistanceTable[DistanceTable.Transports.values().length];
+
+	private SearchGraph(int maxNode, int[] offsets, int[] neighbours, byte[] tickets) {
+		this.maxNode = maxNode;
+		this.offsets = offsets;
+		this.neighbours = neighbours;
+		this.tickets = tickets;
+	}
+
+	/**
+	 * @param setup the game setup
+	 * @return the compiled graph of the setup, compiled once per graph instance
+	 */
+	@Nonnull public static SearchGraph of(@Nonnull GameSetup setup) {
+		return CACHE.getUnchecked(setup.graph);
+	}
+
+	/**
+	 * @param graph the graph to compile; nodes must be between 0 and {@link #MAX_NODE}
+	 * @return a new compiled graph
+	 * @throws IllegalArgumentException if a node is out of range
+	 */
+	@Nonnull public static SearchGraph compile(
+			@Nonnull ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph) {
+		int maxNode = 0;
+		for (int node : graph.nodes()) {
+			if (node < 0) throw new IllegalArgumentException("Negative node " + node);
+			if (node > MAX_NODE)
+				throw new IllegalArgumentException("Node " + node + " doesn't fit a PackedMove, max " + MAX_NODE);
+			maxNode = Math.max(maxNode, node);
+		}
+		int[] offsets = new int[maxNode + 2];
+		for (int node : graph.nodes()) offsets[node + 1] = graph.degree(node);
+		for (int node = 0; node <= maxNode; node++) offsets[node + 1] += offsets[node];
+
+		int[] neighbours = new int[offsets[maxNode + 1]];
+		byte[] tickets = new byte[neighbours.length];
+		for (int node : graph.nodes()) {
+			int start = offsets[node], end = start;
+			for (int neighbour : graph.adjacentNodes(node)) neighbours[end++] = neighbour;
+			Arrays.sort(neighbours, start, end);
+			for (int i = start; i < end; i++) {
+				for (Transport t : Objects.requireNonNull(
+						graph.edgeValueOrDefault(node, neighbours[i], ImmutableSet.of())))
+					tickets[i] |= 1 << t.requiredTicket().ordinal();
+			}
+		}
+		return new SearchGraph(maxNode, offsets, neighbours, tickets);
+	}
+
+	/**
+	 * @param ticket the ticket
+	 * @return the bit used for the ticket in {@link #tickets(int)}
+	 */
+	public static int mask(@Nonnull Ticket ticket) { return 1 << ticket.ordinal(); }
+
+	/**
+	 * @return the largest node id in the graph
+	 */
+	public int maxNode() { return maxNode; }
+
+	/**
+	 * @param node the node
+	 * @return the first edge index of the node
+	 */
+	public int start(int node) { return offsets[node]; }
+
+	/**
+	 * @param node the node
+	 * @return one past the last edge index of the node
+	 */
+	public int end(int node) { return offsets[node + 1]; }
+
+	/**
+	 * @param edge the edge index
+	 * @return the neighbour at the end of the edge
+	 */
+	public int neighbour(int edge) { return neighbours[edge]; }
+
+	/**
+	 * @param edge the edge index
+	 * @return the tickets usable along the edge as a bitmask, see {@link #mask(Ticket)}
+	 */
+	public int tickets(int edge) { return tickets[edge]; }
+
+	Zobrist zobrist() {
+		Zobrist keys = zobrist;
+		if (keys == null) zobrist = keys = new Zobrist(maxNode);
+		return keys;
+	}
+
+	TicketReachability reachability() {
+		TicketReachability engine = reachability;
+		if (engine == null) {
+			synchronized (this) {
+				engine = reachability;
+				if (engine == null) reachability = engine = TicketReachability.create(this);
+			}
+		}
+		return engine;
+	}
+
+	synchronized DistanceTable distances(DistanceTable.Transports transports) {
+		DistanceTable table = distances[transports.ordinal()];
+		if (table == null) distances[transports.ordinal()] = table = DistanceTable.compute(this, transports);
+		return table;
+	}
+}
@@ -0,0 +1,428 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.LogEntry;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * A mutable game state for depth first search. {@link #make(long)} applies a {@link PackedMove}
+ * in place and {@link #unmake()} reverts it, so walking the game tree allocates nothing.
+ * <br>
+ * Pieces are addressed by {@link PackedMove#pieceIndex(Piece)}: 0 is Mr X, 1 to 5 are the
+ * detectives. The rules, including when a round skips back to Mr X and who wins, are the same
+ * as the model's game state so {@link #generateMoves(MoveBuffer)} yields exactly the moves of
+ * {@link Board#getAvailableMoves()}.
+ * <br>
+ * {@link #hash()} is a {@link Zobrist} hash of the position, kept up to date by every
+ * {@link #make(long)} and {@link #unmake()}.
+ */
+public final class SearchState {
+
+	/**
+	 * {@link #winner()} when the game is not over
+	 */
+	public static final int NONE = 0;
+	/**
+	 * {@link #winner()} when Mr X has won
+	 */
+	public static final int MRX_WINS = 1;
+	/**
+	 * {@link #winner()} when the detectives have won
+	 */
+	public static final int DETECTIVES_WIN = 2;
+
+	/**
+	 * The number of piece slots, Mr X plus every detective colour
+	 */
+	public static final int PIECES = 6;
+	static final int MRX = 0;
+	static final int MRX_BIT = 1;
+
+	private static final int TICKET_COUNT = 5;
+	private static final int TAXI = Ticket.TAXI.ordinal();
+	private static final int BUS = Ticket.BUS.ordinal();
+	private static final int UNDERGROUND = Ticket.UNDERGROUND.ordinal();
+	private static final int DOUBLE = Ticket.DOUBLE.ordinal();
+	private static final int SECRET = Ticket.SECRET.ordinal();
+	private static final int[] TRANSPORT_TICKETS = {TAXI, BUS, UNDERGROUND};
+
+	private final GameSetup setup;
+	private final SearchGraph graph;
+	private final Zobrist zobrist;
+	private final boolean[] reveal;
+	private final int detectiveMask;
+
+	private final int[] locations = new int[PIECES];
+	private final int[] tickets = new int[PIECES * TICKET_COUNT];
+	private final long[] occupied;
+	private int remaining;
+	// each entry is (location << 3 | ticket ordinal), location is -1 when hidden
+	private final int[] log;
+	private int logSize;
+	private int lastRevealed;
+	private long hash;
+
+	private long[] undoMoves = new long[64];
+	private long[] undoHashes = new long[64];
+	private int[] undoRemaining = new int[64];
+	private int[] undoRevealed = new int[64];
+	private int depth;
+
+	/**
+	 * Creates a state from a board, taking Mr X's location from his available moves if it's his
+	 * turn or his last revealed location otherwise.
+	 *
+	 * @param board the board
+	 * @throws IllegalArgumentException if Mr X's location can't be worked out from the board
+	 */
+	public SearchState(@Nonnull Board board) { this(board, -1); }
+
+	/**
+	 * Creates a state from a board. Detectives can't see where Mr X is, so searching from their
+	 * point of view needs a guess of his location.
+	 *
+	 * @param board the board
+	 * @param mrXLocation where Mr X is assumed to be, or -1 to work it out like
+	 * {@link #SearchState(Board)}
+	 */
+	public SearchState(@Nonnull Board board, int mrXLocation) {
+		this.setup = board.getSetup();
+		this.graph = SearchGraph.of(setup);
+		this.zobrist = Zobrist.of(graph);
+		this.reveal = new boolean[setup.rounds.size()];
+		for (int i = 0; i < reveal.length; i++) reveal[i] = setup.rounds.get(i);
+		this.occupied = new long[(graph.maxNode() >>> 6) + 1];
+
+		int detectiveMask = 0;
+		for (Piece piece : board.getPlayers()) {
+			int p = PackedMove.pieceIndex(piece);
+			Board.TicketBoard ticketBoard = board.getPlayerTickets(piece).orElseThrow();
+			for (Ticket t : Ticket.values()) tickets[p * TICKET_COUNT + t.ordinal()] = ticketBoard.getCount(t);
+			if (piece.isDetective()) {
+				detectiveMask |= 1 << p;
+				locations[p] = board.getDetectiveLocation((Piece.Detective) piece).orElseThrow();
+				occupied[locations[p] >>> 6] |= 1L << locations[p];
+			}
+		}
+		this.detectiveMask = detectiveMask;
+
+		ImmutableList<LogEntry> travelLog = board.getMrXTravelLog();
+		this.log = new int[Math.max(reveal.length, travelLog.size())];
+		lastRevealed = -1;
+		for (LogEntry entry : travelLog) {
+			int location = entry.location().orElse(-1);
+			if (location != -1) lastRevealed = location;
+			log[logSize++] = location << 3 | entry.ticket().ordinal();
+		}
+
+		ImmutableSet<Move> moves = board.getAvailableMoves();
+		for (Move move : moves) remaining |= 1 << PackedMove.pieceIndex(move.commencedBy());
+		boolean mrXTurn = moves.isEmpty() || remaining == MRX_BIT;
+		if (moves.isEmpty()) remaining = MRX_BIT;
+
+		if (mrXLocation == -1) {
+			if (mrXTurn && !moves.isEmpty()) mrXLocation = moves.iterator().next().source();
+			else if (lastRevealed != -1) mrXLocation = lastRevealed;
+			else throw new IllegalArgumentException("Mr X's location is unknown, pass a guess instead");
+		}
+		locations[MRX] = mrXLocation;
+
+		hash = zobrist.remaining(remaining) ^ zobrist.round(logSize) ^ zobrist.revealed(lastRevealed);
+		for (int p = 0; p < PIECES; p++) {
+			if (p != MRX && (detectiveMask & (1 << p)) == 0) continue;
+			hash ^= zobrist.location(p, locations[p]);
+			for (int t = 0; t < TICKET_COUNT; t++) hash ^= zobrist.tickets(p, t, tickets[p * TICKET_COUNT + t]);
+		}
+	}
+
+	/**
+	 * @return the setup of the game
+	 */
+	@Nonnull public GameSetup setup() { return setup; }
+
+	/**
+	 * @return the compiled graph the state moves on
+	 */
+	@Nonnull public SearchGraph graph() { return graph; }
+
+	/**
+	 * @return bit {@code i} is set if piece {@code i} is a detective in the game
+	 */
+	public int detectiveMask() { return detectiveMask; }
+
+	/**
+	 * @return bit {@code i} is set if piece {@code i} still has to move; either just Mr X or some
+	 * of the detectives
+	 */
+	public int remaining() { return remaining; }
+
+	/**
+	 * @return whether it is Mr X's turn
+	 */
+	public boolean isMrXTurn() { return remaining == MRX_BIT; }
+
+	/**
+	 * @param piece the piece index
+	 * @return the location of the piece
+	 */
+	public int location(int piece) { return locations[piece]; }
+
+	/**
+	 * @param piece the piece index
+	 * @param ticket the ticket
+	 * @return how many of the ticket the piece holds
+	 */
+	public int tickets(int piece, @Nonnull Ticket ticket) {
+		return tickets[piece * TICKET_COUNT + ticket.ordinal()];
+	}
+
+	/**
+	 * @return the number of entries in Mr X's travel log, i.e. the number of rounds played
+	 */
+	public int round() { return logSize; }
+
+	/**
+	 * @param round the round, 0 based
+	 * @return whether Mr X's location is revealed at the end of the round
+	 */
+	public boolean isRevealRound(int round) { return round < reveal.length && reveal[round]; }
+
+	/**
+	 * @return the last location Mr X revealed, or -1 if he hasn't yet
+	 */
+	public int lastRevealedLocation() { return lastRevealed; }
+
+	/**
+	 * @return the Zobrist hash of the position, see {@link Zobrist}
+	 */
+	public long hash() { return hash; }
+
+	/**
+	 * @param node the node
+	 * @return whether a detective is standing on the node
+	 */
+	public boolean isOccupied(int node) { return (occupied[node >>> 6] & (1L << node)) != 0; }
+
+	/**
+	 * @return the number of moves currently made, i.e. how many {@link #unmake()} can revert
+	 */
+	public int depth() { return depth; }
+
+	/**
+	 * @return {@link #NONE}, {@link #MRX_WINS} or {@link #DETECTIVES_WIN}
+	 */
+	public int winner() {
+		if (isOccupied(locations[MRX])) return DETECTIVES_WIN;
+		// while it's the detectives' turn at least one of them can move, see normalise()
+		if (remaining != MRX_BIT) return NONE;
+		if (logSize >= reveal.length) return MRX_WINS;
+		boolean detectivesStuck = true;
+		for (int p = 1; p < PIECES && detectivesStuck; p++)
+			if ((detectiveMask & (1 << p)) != 0 && canMove(p)) detectivesStuck = false;
+		if (detectivesStuck) return MRX_WINS;
+		if (!canMove(MRX)) return DETECTIVES_WIN;
+		return NONE;
+	}
+
+	/**
+	 * Clears the buffer and fills it with the available moves; none once the game is over.
+	 *
+	 * @param out the buffer to fill
+	 */
+	public void generateMoves(@Nonnull MoveBuffer out) {
+		out.clear();
+		if (winner() != NONE) return;
+		if (remaining == MRX_BIT) {
+			addSingleMoves(out, MRX);
+			addDoubleMoves(out);
+		} else {
+			for (int p = 1; p < PIECES; p++)
+				if ((remaining & (1 << p)) != 0) addSingleMoves(out, p);
+		}
+	}
+
+	/**
+	 * @return the available moves as model moves, mostly for testing against the model
+	 */
+	@Nonnull public ImmutableSet<Move> availableMoves() {
+		MoveBuffer buffer = new MoveBuffer();
+		generateMoves(buffer);
+		var builder = ImmutableSet.<Move>builder();
+		for (int i = 0; i < buffer.size(); i++) builder.add(PackedMove.unpack(buffer.get(i)));
+		return builder.build();
+	}
+
+	/**
+	 * Plays a move in place; the move must be one of the available moves.
+	 *
+	 * @param move the packed move
+	 */
+	public void make(long move) {
+		if (depth == undoMoves.length) {
+			undoMoves = Arrays.copyOf(undoMoves, depth * 2);
+			undoHashes = Arrays.copyOf(undoHashes, depth * 2);
+			undoRemaining = Arrays.copyOf(undoRemaining, depth * 2);
+			undoRevealed = Arrays.copyOf(undoRevealed, depth * 2);
+		}
+		undoMoves[depth] = move;
+		undoHashes[depth] = hash;
+		undoRemaining[depth] = remaining;
+		undoRevealed[depth] = lastRevealed;
+		depth++;
+		hash ^= zobrist.remaining(remaining) ^ zobrist.round(logSize) ^ zobrist.revealed(lastRevealed);
+
+		int piece = PackedMove.piece(move);
+		int destination = PackedMove.destination(move);
+		int ticket1 = PackedMove.ticket1(move);
+		hash ^= zobrist.location(piece, locations[piece]) ^ zobrist.location(piece, destination);
+		if (piece == MRX) {
+			addTickets(MRX, ticket1, -1);
+			appendLog(ticket1, PackedMove.destination1(move));
+			if (PackedMove.isDouble(move)) {
+				int ticket2 = PackedMove.ticket2(move);
+				addTickets(MRX, ticket2, -1);
+				addTickets(MRX, DOUBLE, -1);
+				appendLog(ticket2, destination);
+			}
+			locations[MRX] = destination;
+			remaining = detectiveMask;
+		} else {
+			addTickets(piece, ticket1, -1);
+			addTickets(MRX, ticket1, 1);
+			int source = locations[piece];
+			occupied[source >>> 6] &= ~(1L << source);
+			occupied[destination >>> 6] |= 1L << destination;
+			locations[piece] = destination;
+			remaining &= ~(1 << piece);
+		}
+		normalise();
+		hash ^= zobrist.remaining(remaining) ^ zobrist.round(logSize) ^ zobrist.revealed(lastRevealed);
+	}
+
+	/**
+	 * Reverts the last {@link #make(long)}.
+	 */
+	public void unmake() {
+		depth--;
+		long move = undoMoves[depth];
+		hash = undoHashes[depth];
+		remaining = undoRemaining[depth];
+		lastRevealed = undoRevealed[depth];
+
+		int piece = PackedMove.piece(move);
+		int source = PackedMove.source(move);
+		int ticket1 = PackedMove.ticket1(move);
+		if (piece == MRX) {
+			tickets[ticket1]++;
+			logSize--;
+			if (PackedMove.isDouble(move)) {
+				tickets[PackedMove.ticket2(move)]++;
+				tickets[DOUBLE]++;
+				logSize--;
+			}
+		} else {
+			tickets[piece * TICKET_COUNT + ticket1]++;
+			tickets[ticket1]--;
+			int destination = locations[piece];
+			occupied[destination >>> 6] &= ~(1L << destination);
+			occupied[source >>> 6] |= 1L << source;
+		}
+		locations[piece] = source;
+	}
+
+	/**
+	 * @return the travel log as the model would show it
+	 */
+	@Nonnull public ImmutableList<LogEntry> travelLog() {
+		var builder = ImmutableList.<LogEntry>builderWithExpectedSize(logSize);
+		for (int i = 0; i < logSize; i++) {
+			Ticket ticket = Ticket.values()[log[i] & 7];
+			int location = log[i] >> 3;
+			builder.add(location == -1 ? LogEntry.hidden(ticket) : LogEntry.reveal(ticket, location));
+		}
+		return builder.build();
+	}
+
+	// hand the turn back to Mr X when none of the detectives left this round can move
+	private void normalise() {
+		for (int p = 1; p < PIECES; p++)
+			if ((remaining & (1 << p)) != 0 && canMove(p)) return;
+		remaining = MRX_BIT;
+	}
+
+	private void appendLog(int ticket, int location) {
+		if (reveal[logSize]) lastRevealed = location;
+		log[logSize] = (reveal[logSize] ? location : -1) << 3 | ticket;
+		logSize++;
+	}
+
+	private void addTickets(int piece, int ticket, int delta) {
+		int i = piece * TICKET_COUNT + ticket;
+		hash ^= zobrist.tickets(piece, ticket, tickets[i]) ^ zobrist.tickets(piece, ticket, tickets[i] + delta);
+		tickets[i] += delta;
+	}
+
+	private boolean canMove(int piece) {
+		int base = piece * TICKET_COUNT;
+		int usable = 0;
+		for (int t : TRANSPORT_TICKETS) if (tickets[base + t] > 0) usable |= 1 << t;
+		boolean secret = tickets[base + SECRET] > 0;
+		int source = locations[piece];
+		for (int edge = graph.start(source); edge < graph.end(source); edge++) {
+			if (isOccupied(graph.neighbour(edge))) continue;
+			if (secret || (graph.tickets(edge) & usable) != 0) return true;
+		}
+		return false;
+	}
+
+	private void addSingleMoves(MoveBuffer out, int piece) {
+		int base = piece * TICKET_COUNT;
+		int source = locations[piece];
+		for (int edge = graph.start(source); edge < graph.end(source); edge++) {
+			int destination = graph.neighbour(edge);
+			if (isOccupied(destination)) continue;
+			int edgeTickets = graph.tickets(edge);
+			for (int t : TRANSPORT_TICKETS)
+				if ((edgeTickets & (1 << t)) != 0 && tickets[base + t] > 0)
+					out.add(PackedMove.single(piece, source, t, destination));
+			if (tickets[base + SECRET] > 0) out.add(PackedMove.single(piece, source, SECRET, destination));
+		}
+	}
+
+	private void addDoubleMoves(MoveBuffer out) {
+		if (tickets[DOUBLE] == 0 || reveal.length - logSize < 2) return;
+		int source = locations[MRX];
+		for (int edge1 = graph.start(source); edge1 < graph.end(source); edge1++) {
+			int destination1 = graph.neighbour(edge1);
+			if (isOccupied(destination1)) continue;
+			int edge1Tickets = graph.tickets(edge1);
+			for (int t1 : TRANSPORT_TICKETS)
+				if ((edge1Tickets & (1 << t1)) != 0 && tickets[t1] > 0)
+					addSecondHops(out, source, t1, destination1);
+			if (tickets[SECRET] > 0) addSecondHops(out, source, SECRET, destination1);
+		}
+	}
+
+	private void addSecondHops(MoveBuffer out, int source, int ticket1, int destination1) {
+		for (int edge = graph.start(destination1); edge < graph.end(destination1); edge++) {
+			int destination2 = graph.neighbour(edge);
+			if (isOccupied(destination2)) continue;
+			int edgeTickets = graph.tickets(edge);
+			for (int t : TRANSPORT_TICKETS)
+				if ((edgeTickets & (1 << t)) != 0 && tickets[t] > (t == ticket1 ? 1 : 0))
+					out.add(PackedMove.doubleMove(MRX, source, ticket1, destination1, t, destination2));
+			if (tickets[SECRET] > (ticket1 == SECRET ? 1 : 0))
+				out.add(PackedMove.doubleMove(MRX, source, ticket1, destination1, SECRET, destination2));
+		}
+	}
+}
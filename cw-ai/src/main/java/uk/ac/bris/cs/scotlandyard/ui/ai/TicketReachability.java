@@ -0,0 +1,185 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.TicketBoard;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Answers reachability questions that respect a player's ticket counts, unlike
+ * {@link DistanceTable} which assumes unlimited tickets.
+ * <br>
+ * The search runs one move at a time over (node, ticket vector) states. A state is dropped if
+ * the node was already reached, in as many moves or fewer, with at least as many of every ticket,
+ * since it can't get anywhere the other state can't. Results are memoised by (location, ticket
+ * vector, moves) so repeated queries during search are a cache lookup.
+ * <br>
+ * Secret tickets work on every route including the ferry; double tickets are ignored, a double
+ * move is simply two moves.
+ */
+public final class TicketReachability {
+
+	/**
+	 * The most moves a query can look ahead; ticket counts above this are treated as this many
+	 */
+	public static final int MAX_MOVES = 255;
+
+	private static final Ticket[] USABLE = {Ticket.TAXI, Ticket.BUS, Ticket.UNDERGROUND, Ticket.SECRET};
+	private static final int SECRET = 3;
+	// ticket vectors pack the USABLE counts into 16 bit fields
+	private static final long HIGH_BITS = 0x8000_8000_8000_8000L;
+
+	private final SearchGraph graph;
+	private final Cache<Long, short[]> memo = CacheBuilder.newBuilder().maximumSize(4096).build();
+
+	private TicketReachability(SearchGraph graph) { this.graph = graph; }
+
+	/**
+	 * @param setup the game setup
+	 * @return the engine for the setup's graph, shared by every caller
+	 */
+	@Nonnull public static TicketReachability of(@Nonnull GameSetup setup) {
+		return SearchGraph.of(setup).reachability();
+	}
+
+	static TicketReachability create(@Nonnull SearchGraph graph) { return new TicketReachability(graph); }
+
+	/**
+	 * @param location where the player is
+	 * @param tickets the player's tickets
+	 * @param moves the most moves to make, at most {@link #MAX_MOVES}
+	 * @return a bitset of the nodes reachable in {@code moves} moves or fewer, including the
+	 * starting node; bit {@code n} is set for node {@code n}
+	 */
+	@Nonnull public long[] reachable(int location, @Nonnull TicketBoard tickets, int moves) {
+		short[] distances = distances(location, tickets, moves);
+		long[] bits = new long[(graph.maxNode() >>> 6) + 1];
+		for (int node = 0; node < distances.length; node++)
+			if (distances[node] >= 0 && distances[node] <= moves) bits[node >>> 6] |= 1L << node;
+		return bits;
+	}
+
+	/**
+	 * @param player the player, a detective or Mr X
+	 * @param moves the most moves to make, at most {@link #MAX_MOVES}
+	 * @return see {@link #reachable(int, TicketBoard, int)}
+	 */
+	@Nonnull public long[] reachable(@Nonnull Player player, int moves) {
+		return reachable(player.location(), ticketsOf(player), moves);
+	}
+
+	/**
+	 * @param from where the player is
+	 * @param to the node to get to
+	 * @param tickets the player's tickets
+	 * @return the least number of moves from one node to the other spending only the given
+	 * tickets, or {@link DistanceTable#UNREACHABLE} if the tickets run out first
+	 */
+	public int minMoves(int from, int to, @Nonnull TicketBoard tickets) {
+		return distances(from, tickets, MAX_MOVES)[to];
+	}
+
+	/**
+	 * @param player the player, a detective or Mr X
+	 * @param to the node to get to
+	 * @return see {@link #minMoves(int, int, TicketBoard)}
+	 */
+	public int minMoves(@Nonnull Player player, int to) {
+		return minMoves(player.location(), to, ticketsOf(player));
+	}
+
+	private static TicketBoard ticketsOf(Player player) {
+		return ticket -> player.tickets().getOrDefault(ticket, 0);
+	}
+
+	private short[] distances(int location, TicketBoard tickets, int moves) {
+		if (moves < 0 || moves > MAX_MOVES) throw new IllegalArgumentException("Moves out of range: " + moves);
+		// more tickets than moves can't make a difference, clamping lets more queries share a result
+		long vector = 0;
+		long key = location;
+		for (int i = 0; i < USABLE.length; i++) {
+			long count = Math.min(tickets.getCount(USABLE[i]), moves);
+			vector |= count << (16 * i);
+			key = key << 8 | count;
+		}
+		key = key << 8 | moves;
+		long start = vector;
+		try {
+			return memo.get(key, () -> search(location, start, moves));
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private short[] search(int source, long tickets, int moves) {
+		int nodes = graph.maxNode() + 1;
+		short[] distances = new short[nodes];
+		Arrays.fill(distances, (short) DistanceTable.UNREACHABLE);
+		distances[source] = 0;
+
+		// the ticket vectors every node has been reached with, pruned to the ones not dominated
+		long[][] seen = new long[nodes][];
+		int[] seenCount = new int[nodes];
+		insert(seen, seenCount, source, tickets);
+
+		int[] layerNodes = {source};
+		long[] layerTickets = {tickets};
+		int layerSize = 1;
+		for (int move = 1; move <= moves && layerSize > 0; move++) {
+			int[] nextNodes = new int[Math.max(16, layerSize * 4)];
+			long[] nextTickets = new long[nextNodes.length];
+			int nextSize = 0;
+			for (int i = 0; i < layerSize; i++) {
+				int node = layerNodes[i];
+				long vector = layerTickets[i];
+				for (int edge = graph.start(node); edge < graph.end(node); edge++) {
+					int neighbour = graph.neighbour(edge);
+					int edgeTickets = graph.tickets(edge);
+					for (int t = 0; t < USABLE.length; t++) {
+						if (t != SECRET && (edgeTickets & SearchGraph.mask(USABLE[t])) == 0) continue;
+						if (((vector >>> (16 * t)) & 0xFFFF) == 0) continue;
+						long remaining = vector - (1L << (16 * t));
+						if (!insert(seen, seenCount, neighbour, remaining)) continue;
+						if (distances[neighbour] == DistanceTable.UNREACHABLE) distances[neighbour] = (short) move;
+						if (nextSize == nextNodes.length) {
+							nextNodes = Arrays.copyOf(nextNodes, nextSize * 2);
+							nextTickets = Arrays.copyOf(nextTickets, nextSize * 2);
+						}
+						nextNodes[nextSize] = neighbour;
+						nextTickets[nextSize] = remaining;
+						nextSize++;
+					}
+				}
+			}
+			layerNodes = nextNodes;
+			layerTickets = nextTickets;
+			layerSize = nextSize;
+		}
+		return distances;
+	}
+
+	// adds the vector to the node's frontier unless an existing one dominates it
+	private static boolean insert(long[][] seen, int[] seenCount, int node, long vector) {
+		long[] vectors = seen[node];
+		int count = seenCount[node];
+		for (int i = 0; i < count; i++) if (dominates(vectors[i], vector)) return false;
+		int kept = 0;
+		for (int i = 0; i < count; i++) if (!dominates(vector, vectors[i])) vectors[kept++] = vectors[i];
+		if (vectors == null) seen[node] = vectors = new long[4];
+		else if (kept == vectors.length) seen[node] = vectors = Arrays.copyOf(vectors, kept * 2);
+		vectors[kept++] = vector;
+		seenCount[node] = kept;
+		return true;
+	}
+
+	// whether every ticket count in a is at least the count in b
+	private static boolean dominates(long a, long b) { return (((a | HIGH_BITS) - b) & HIGH_BITS) == HIGH_BITS; }
+}
@@ -0,0 +1,198 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A fixed size transposition table keyed by {@link SearchState#hash()} and backed by a single
+ * {@code long[]}, safe to share between search threads without locks.
+ * <br>
+ * Every entry is three words: a check word, the {@link PackedMove} and a word packing score,
+ * depth, bound and generation. The check word is the key XOR the other two, so an entry torn by
+ * two threads writing at once fails the check and reads as a miss instead of returning garbage.
+ * <br>
+ * Entries live in buckets of two: the first slot keeps the deepest entry of the current search,
+ * the second is always replaced.
+ */
+public final class TranspositionTable {
+
+	/**
+	 * Bound type for an exact score
+	 */
+	public static final int EXACT = 1;
+	/**
+	 * Bound type for a fail high, the score is a lower bound
+	 */
+	public static final int LOWER = 2;
+	/**
+	 * Bound type for a fail low, the score is an upper bound
+	 */
+	public static final int UPPER = 3;
+
+	private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+	private static final int WORDS_PER_ENTRY = 3;
+	private static final int ENTRIES_PER_BUCKET = 2;
+
+	private final long[] table;
+	private final int bucketMask;
+	private volatile int generation;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder collisions = new LongAdder();
+	private final LongAdder stores = new LongAdder();
+
+	/**
+	 * Reused holder for a probed entry, keep one per search thread.
+	 */
+	public static final class Entry {
+		/**
+		 * The depth the entry was searched to
+		 */
+		public int depth;
+		/**
+		 * {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+		 */
+		public int bound;
+		/**
+		 * The score
+		 */
+		public int score;
+		/**
+		 * The best move found, or {@link PackedMove#NONE}
+		 */
+		public long move;
+	}
+
+	/**
+	 * @param megabytes the size of the table, rounded down to a power of two number of buckets
+	 */
+	public TranspositionTable(int megabytes) {
+		long bytesPerBucket = 8L * WORDS_PER_ENTRY * ENTRIES_PER_BUCKET;
+		long buckets = Long.highestOneBit(Math.max(1, megabytes * 1024L * 1024L / bytesPerBucket));
+		int maxBuckets = Integer.highestOneBit(Integer.MAX_VALUE / (WORDS_PER_ENTRY * ENTRIES_PER_BUCKET));
+		buckets = Math.min(buckets, maxBuckets);
+		this.table = new long[(int) buckets * WORDS_PER_ENTRY * ENTRIES_PER_BUCKET];
+		this.bucketMask = (int) buckets - 1;
+	}
+
+	/**
+	 * Marks the start of a new search so entries from older searches get replaced first.
+	 */
+	public void newSearch() { generation = (generation + 1) & 0xFF; }
+
+	/**
+	 * @param key the position hash
+	 * @param into where to copy the entry
+	 * @return whether an entry for the key was found
+	 */
+	public boolean probe(long key, @Nonnull Entry into) {
+		int base = bucket(key);
+		boolean occupied = false;
+		for (int i = 0; i < ENTRIES_PER_BUCKET; i++) {
+			int slot = base + i * WORDS_PER_ENTRY;
+			long check = (long) WORDS.getOpaque(table, slot);
+			long move = (long) WORDS.getOpaque(table, slot + 1);
+			long data = (long) WORDS.getOpaque(table, slot + 2);
+			if (data == 0) continue;
+			if ((check ^ move ^ data) != key) {
+				occupied = true;
+				continue;
+			}
+			into.score = (int) data;
+			into.depth = (int) (data >>> 32) & 0xFFFF;
+			into.bound = (int) (data >>> 48) & 3;
+			into.move = move;
+			hits.increment();
+			return true;
+		}
+		misses.increment();
+		if (occupied) collisions.increment();
+		return false;
+	}
+
+	/**
+	 * @param key the position hash
+	 * @param depth the depth searched, 0 to 65535
+	 * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+	 * @param score the score
+	 * @param move the best move, or {@link PackedMove#NONE}
+	 */
+	public void store(long key, int depth, int bound, int score, long move) {
+		int generation = this.generation;
+		long data = (score & 0xFFFFFFFFL)
+				| (long) (depth & 0xFFFF) << 32
+				| (long) (bound & 3) << 48
+				| (long) generation << 50;
+		int base = bucket(key);
+		int slot = base + WORDS_PER_ENTRY;
+		long first = (long) WORDS.getOpaque(table, base + 2);
+		// the first slot is replaced by the same position, a deeper search or a newer search
+		if (first == 0 || holds(base, key)
+				|| depth >= ((first >>> 32) & 0xFFFF)
+				|| ((first >>> 50) & 0xFF) != generation) slot = base;
+		// keep the old best move if we didn't find one this time
+		if (move == PackedMove.NONE && holds(slot, key)) move = (long) WORDS.getOpaque(table, slot + 1);
+		WORDS.setOpaque(table, slot, key ^ move ^ data);
+		WORDS.setOpaque(table, slot + 1, move);
+		WORDS.setOpaque(table, slot + 2, data);
+		stores.increment();
+	}
+
+	/**
+	 * Empties the table and resets the counters; not safe while other threads are searching.
+	 */
+	public void clear() {
+		Arrays.fill(table, 0);
+		hits.reset();
+		misses.reset();
+		collisions.reset();
+		stores.reset();
+	}
+
+	/**
+	 * @return the number of entries the table can hold
+	 */
+	public int capacity() { return table.length / WORDS_PER_ENTRY; }
+
+	/**
+	 * @return probes that found their position
+	 */
+	public long hits() { return hits.sum(); }
+
+	/**
+	 * @return probes that didn't find their position
+	 */
+	public long misses() { return misses.sum(); }
+
+	/**
+	 * @return misses where the bucket held other positions
+	 */
+	public long collisions() { return collisions.sum(); }
+
+	/**
+	 * @return entries written
+	 */
+	public long stores() { return stores.sum(); }
+
+	@Override public String toString() {
+		long hits = hits(), misses = misses();
+		return String.format("TranspositionTable[capacity=%d, hits=%d, misses=%d, collisions=%d, "
+						+ "stores=%d, hit rate=%.1f%%]", capacity(), hits, misses, collisions(), stores(),
+				hits + misses == 0 ? 0d : 100d * hits / (hits + misses));
+	}
+
+	private boolean holds(int slot, long key) {
+		long data = (long) WORDS.getOpaque(table, slot + 2);
+		return data != 0 && ((long) WORDS.getOpaque(table, slot)
+				^ (long) WORDS.getOpaque(table, slot + 1) ^ data) == key;
+	}
+
+	private int bucket(long key) {
+		return ((int) (key ^ (key >>> 32)) & bucketMask) * WORDS_PER_ENTRY * ENTRIES_PER_BUCKET;
+	}
+}
@@ -0,0 +1,120 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board;
+
+/**
+ * Random 64-bit keys for Zobrist hashing of positions. A position's hash is the XOR of one key per
+ * piece location, one per piece ticket count, one for the set of pieces left to move, one for the
+ * round and one for Mr X's last revealed location, so {@link SearchState} can update it in O(1)
+ * per move.
+ * <br>
+ * Keys come from a fixed seed, so equal positions have equal hashes across searches and turns.
+ * Ticket counts above {@link #MAX_COUNT} and rounds above {@link #MAX_ROUND} share a key.
+ */
+public final class Zobrist {
+
+	/**
+	 * Ticket counts from here up hash the same
+	 */
+	public static final int MAX_COUNT = 63;
+	/**
+	 * Rounds from here up hash the same
+	 */
+	public static final int MAX_ROUND = 255;
+
+	private static final int TICKET_COUNT = 5;
+
+	private final int nodes;
+	private final long[] locations;
+	private final long[] tickets;
+	private final long[] remaining;
+	private final long[] rounds;
+	private final long[] revealed;
+
+	/**
+	 * @param maxNode the largest node id the keys have to cover
+	 */
+	public Zobrist(int maxNode) {
+		this.nodes = maxNode + 1;
+		long seed = 0x5C07_1A9D_0000_0001L;
+		this.locations = new long[SearchState.PIECES * nodes];
+		this.tickets = new long[SearchState.PIECES * TICKET_COUNT * (MAX_COUNT + 1)];
+		this.remaining = new long[1 << SearchState.PIECES];
+		this.rounds = new long[MAX_ROUND + 1];
+		this.revealed = new long[nodes + 1];
+		seed = fill(locations, seed);
+		seed = fill(tickets, seed);
+		seed = fill(remaining, seed);
+		seed = fill(rounds, seed);
+		fill(revealed, seed);
+	}
+
+	/**
+	 * @param graph the graph
+	 * @return the keys for the graph, created once per graph
+	 */
+	@Nonnull public static Zobrist of(@Nonnull SearchGraph graph) { return graph.zobrist(); }
+
+	/**
+	 * Hashes a board the same way {@link SearchState#hash()} does for a state made from it.
+	 * <br>
+	 * A board only shows the detectives left to move through their available moves, so a
+	 * detective that is stuck this round counts as having moved. The hash then differs from one
+	 * reached by {@link SearchState#make(long)}, which still has them left to move.
+	 *
+	 * @param board the board, e.g. an {@link uk.ac.bris.cs.scotlandyard.model.ImmutableBoard}
+	 * @param mrXLocation where Mr X is, or -1 to work it out like {@link SearchState#SearchState(Board)}
+	 * @return the hash of the board
+	 */
+	public static long hash(@Nonnull Board board, int mrXLocation) {
+		return new SearchState(board, mrXLocation).hash();
+	}
+
+	/**
+	 * @param piece the piece index
+	 * @param node the node the piece is on
+	 * @return the key
+	 */
+	public long location(int piece, int node) { return locations[piece * nodes + node]; }
+
+	/**
+	 * @param piece the piece index
+	 * @param ticket the ticket ordinal
+	 * @param count how many of the ticket the piece holds
+	 * @return the key
+	 */
+	public long tickets(int piece, int ticket, int count) {
+		return tickets[(piece * TICKET_COUNT + ticket) * (MAX_COUNT + 1) + Math.min(count, MAX_COUNT)];
+	}
+
+	/**
+	 * @param mask bit {@code i} set if piece {@code i} is left to move this round
+	 * @return the key
+	 */
+	public long remaining(int mask) { return remaining[mask]; }
+
+	/**
+	 * @param round the number of log entries
+	 * @return the key
+	 */
+	public long round(int round) { return rounds[Math.min(round, MAX_ROUND)]; }
+
+	/**
+	 * @param node Mr X's last revealed location, or -1 if he hasn't been revealed yet
+	 * @return the key
+	 */
+	public long revealed(int node) { return revealed[node + 1]; }
+
+	// splitmix64, good enough keys without pulling in a Random per table
+	private static long fill(long[] keys, long seed) {
+		for (int i = 0; i < keys.length; i++) {
+			long z = (seed += 0x9E3779B97F4A7C15L);
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			keys[i] = z ^ (z >>> 31);
+		}
+		return seed;
+	}
+}
@@ -0,0 +1,96 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests that {@link AlphaBetaDetectiveAi} picks available moves and stops searching on time.
+ */
+public class AlphaBetaDetectiveAiTest {
+
+	private static final Duration MOVE_TIME = Duration.ofMillis(20);
+
+	// a board on the detectives' turn, after Mr X's first move
+	private static GameState detectivesTurn(int seed) throws IOException {
+		GameState state = SearchStateTest.start(seed);
+		return state.advance(state.getAvailableMoves().asList().get(0));
+	}
+
+	@Test public void testPicksAvailableMovesAsDetectives() throws IOException {
+		var ai = new AlphaBetaDetectiveAi(MOVE_TIME, 1);
+		for (int seed = 0; seed < 2; seed++) {
+			ai.onStart();
+			GameState state = SearchStateTest.start(seed);
+			while (state.getWinner().isEmpty()) {
+				var available = state.getAvailableMoves();
+				Move move = available.iterator().next().commencedBy().isDetective()
+						? ai.pickMove(state, new AtomicBoolean(false))
+						: available.asList().get(0);
+				assertThat(available).contains(move);
+				state = state.advance(move);
+			}
+			ai.onTerminate();
+		}
+	}
+
+	@Test public void testPicksAvailableMovesAsMrX() throws IOException {
+		var ai = new AlphaBetaDetectiveAi(MOVE_TIME, 1);
+		for (int seed = 0; seed < 2; seed++) {
+			ai.onStart();
+			GameState state = SearchStateTest.start(seed);
+			while (state.getWinner().isEmpty()) {
+				var available = state.getAvailableMoves();
+				Move move = available.iterator().next().commencedBy().isMrX()
+						? ai.pickMove(state, new AtomicBoolean(false))
+						: available.asList().get(0);
+				assertThat(available).contains(move);
+				state = state.advance(move);
+			}
+			ai.onTerminate();
+		}
+	}
+
+	@Test public void testStopsAtTheMoveTime() throws IOException {
+		var ai = new AlphaBetaDetectiveAi(Duration.ofMillis(300), 1);
+		ai.onStart();
+		GameState state = detectivesTurn(1);
+		// the first move builds the distance tables of the map
+		ai.pickMove(state, new AtomicBoolean(false));
+		long start = System.nanoTime();
+		Move move = ai.pickMove(state, new AtomicBoolean(false));
+		long millis = (System.nanoTime() - start) / 1_000_000;
+		assertThat(state.getAvailableMoves()).contains(move);
+		assertThat(millis < 2300).isTrue();
+		ai.onTerminate();
+	}
+
+	@Test public void testStopsWhenTerminated() throws Exception {
+		var ai = new AlphaBetaDetectiveAi(Duration.ofMinutes(1), 1);
+		ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+		ai.onStart();
+		try {
+			GameState state = detectivesTurn(2);
+			var terminate = new AtomicBoolean(false);
+			timer.schedule(() -> terminate.set(true), 200, TimeUnit.MILLISECONDS);
+			long start = System.nanoTime();
+			Move move = ai.pickMove(state, terminate);
+			long millis = (System.nanoTime() - start) / 1_000_000;
+			assertThat(state.getAvailableMoves()).contains(move);
+			assertThat(millis < 5000).isTrue();
+		} finally {
+			timer.shutdownNow();
+			ai.onTerminate();
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.STANDARD24ROUNDS;
+
+/**
+ * Tests {@link DistanceTable} against a plain breadth first search over the model graph.
+ */
+public class DistanceTableTest {
+
+	private static int[] bfs(ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph,
+	                         Set<Ticket> tickets, int source, int nodes) {
+		int[] distances = new int[nodes];
+		Arrays.fill(distances, DistanceTable.UNREACHABLE);
+		distances[source] = 0;
+		var queue = new ArrayDeque<Integer>();
+		queue.add(source);
+		while (!queue.isEmpty()) {
+			int node = queue.remove();
+			for (int neighbour : graph.adjacentNodes(node)) {
+				if (distances[neighbour] != DistanceTable.UNREACHABLE) continue;
+				boolean usable = graph.edgeValueOrDefault(node, neighbour, ImmutableSet.of()).stream()
+						.anyMatch(transport -> tickets.contains(transport.requiredTicket()));
+				if (!usable) continue;
+				distances[neighbour] = distances[node] + 1;
+				queue.add(neighbour);
+			}
+		}
+		return distances;
+	}
+
+	private static void assertMatchesBfs(DistanceTable.Transports transports, Set<Ticket> tickets)
+			throws IOException {
+		var graph = ScotlandYard.standardGraph();
+		var table = DistanceTable.compute(SearchGraph.compile(graph), transports);
+		for (int source : graph.nodes()) {
+			int[] expected = bfs(graph, tickets, source, table.maxNode() + 1);
+			for (int target : graph.nodes())
+				assertThat(table.distance(source, target)).isEqualTo(expected[target]);
+		}
+	}
+
+	@Test public void testTaxiDistancesMatchBfs() throws IOException {
+		assertMatchesBfs(DistanceTable.Transports.TAXI, EnumSet.of(Ticket.TAXI));
+	}
+
+	@Test public void testDetectiveDistancesMatchBfs() throws IOException {
+		assertMatchesBfs(DistanceTable.Transports.DETECTIVE,
+				EnumSet.of(Ticket.TAXI, Ticket.BUS, Ticket.UNDERGROUND));
+	}
+
+	@Test public void testAllDistancesMatchBfs() throws IOException {
+		assertMatchesBfs(DistanceTable.Transports.ALL, EnumSet.allOf(Ticket.class));
+	}
+
+	@Test public void testTablesAreSharedPerGraph() throws IOException {
+		var graph = ScotlandYard.standardGraph();
+		var first = DistanceTable.of(new GameSetup(graph, STANDARD24ROUNDS), DistanceTable.Transports.TAXI);
+		var second = DistanceTable.of(new GameSetup(graph, STANDARD24ROUNDS), DistanceTable.Transports.TAXI);
+		assertThat(second).isSameAs(first);
+	}
+
+	@Test public void testWorksOnAMapAtTheNodeLimit() {
+		var table = DistanceTable.compute(SearchGraph.compile(SearchGraphTest.line(SearchGraph.MAX_NODE)),
+				DistanceTable.Transports.TAXI);
+		assertThat(table.maxNode()).isEqualTo(SearchGraph.MAX_NODE);
+		assertThat(table.distance(1, SearchGraph.MAX_NODE)).isEqualTo(SearchGraph.MAX_NODE - 1);
+		assertThat(table.distance(SearchGraph.MAX_NODE, 2)).isEqualTo(SearchGraph.MAX_NODE - 2);
+		assertThat(table.distance(0, SearchGraph.MAX_NODE)).isEqualTo(DistanceTable.UNREACHABLE);
+	}
+}
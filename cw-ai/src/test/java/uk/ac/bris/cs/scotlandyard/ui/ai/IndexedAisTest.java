@@ -0,0 +1,101 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+
+import io.github.lukehutch.fastclasspathscanner.FastClasspathScanner;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.STANDARD24ROUNDS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests that the service index lists every public Ai of this module and that each plays both
+ * sides, as the UI offers it for either.
+ */
+public class IndexedAisTest {
+
+	private static final Duration THINK_TIME = Duration.ofMillis(20);
+
+	private static GameState play(Ai mrX, Ai detectives) throws IOException {
+		GameState state = new MyGameStateFactory().build(
+				new GameSetup(ScotlandYard.standardGraph(), STANDARD24ROUNDS),
+				new Player(MRX, defaultMrXTickets(), 45),
+				ImmutableList.of(new Player(RED, defaultDetectiveTickets(), 13),
+						new Player(GREEN, defaultDetectiveTickets(), 91),
+						new Player(BLUE, defaultDetectiveTickets(), 155)));
+		mrX.onStart();
+		detectives.onStart();
+		try {
+			while (state.getWinner().isEmpty()) {
+				var available = state.getAvailableMoves();
+				Ai ai = available.iterator().next().commencedBy().isMrX() ? mrX : detectives;
+				Move move = ai.pickMove(state, new AtomicBoolean(false));
+				assertThat(available).contains(move);
+				state = state.advance(move);
+			}
+			return state;
+		} finally {
+			mrX.onTerminate();
+			detectives.onTerminate();
+		}
+	}
+
+	private static final class FirstMoveAi implements Ai {
+		@Nonnull @Override public String name() { return "First"; }
+
+		@Nonnull @Override public Move pickMove(@Nonnull Board board, @Nonnull AtomicBoolean terminate) {
+			return board.getAvailableMoves().asList().get(0);
+		}
+	}
+
+	@Test public void testIndexListsEveryPublicAiOfThisModule() {
+		// the UI only scans the classpath when asked to, so an Ai left out of the index is lost
+		var scan = new FastClasspathScanner(MyAi.class.getPackageName()).scan();
+		var scanned = scan.classNamesToClassRefs(scan.getNamesOfClassesImplementing(Ai.class)).stream()
+				.filter(type -> Modifier.isPublic(type.getModifiers()))
+				.filter(type -> !Modifier.isAbstract(type.getModifiers()))
+				.map(Class::getName)
+				.collect(Collectors.toList());
+		assertThat(scanned).contains(MyAi.class.getName());
+		assertThat(ServiceLoader.load(Ai.class).stream()
+				.map(provider -> provider.type().getName())
+				.collect(Collectors.toList()))
+				.containsAll(scanned);
+	}
+
+	@Test public void testMctsPlaysBothSides() throws IOException {
+		assertThat(play(new MctsMrXAi(THINK_TIME, 1), new FirstMoveAi()).getWinner()).isNotEmpty();
+		assertThat(play(new FirstMoveAi(), new MctsMrXAi(THINK_TIME, 1)).getWinner()).isNotEmpty();
+	}
+
+	@Test public void testAlphaBetaPlaysBothSides() throws IOException {
+		assertThat(play(new AlphaBetaDetectiveAi(THINK_TIME, 1), new FirstMoveAi()).getWinner())
+				.isNotEmpty();
+		assertThat(play(new FirstMoveAi(), new AlphaBetaDetectiveAi(THINK_TIME, 1)).getWinner())
+				.isNotEmpty();
+	}
+}
@@ -0,0 +1,98 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests that {@link MctsMrXAi} picks available moves and stops searching on time.
+ */
+public class MctsMrXAiTest {
+
+	private static final Duration THINK_TIME = Duration.ofMillis(20);
+
+	@Test public void testPicksAvailableMovesAsMrX() throws IOException {
+		var ai = new MctsMrXAi(THINK_TIME, 1);
+		ai.onStart();
+		try {
+			for (int seed = 0; seed < 2; seed++) {
+				GameState state = SearchStateTest.start(seed);
+				while (state.getWinner().isEmpty()) {
+					var available = state.getAvailableMoves();
+					Move move = available.iterator().next().commencedBy().isMrX()
+							? ai.pickMove(state, new AtomicBoolean(false))
+							: available.asList().get(0);
+					assertThat(available).contains(move);
+					state = state.advance(move);
+				}
+			}
+		} finally {
+			ai.onTerminate();
+		}
+	}
+
+	@Test public void testPicksAvailableMovesAsDetectives() throws IOException {
+		var ai = new MctsMrXAi(THINK_TIME, 1);
+		ai.onStart();
+		try {
+			GameState state = SearchStateTest.start(0);
+			while (state.getWinner().isEmpty()) {
+				var available = state.getAvailableMoves();
+				Move move = available.iterator().next().commencedBy().isDetective()
+						? ai.pickMove(state, new AtomicBoolean(false))
+						: available.asList().get(0);
+				assertThat(available).contains(move);
+				state = state.advance(move);
+			}
+		} finally {
+			ai.onTerminate();
+		}
+	}
+
+	@Test public void testStopsAtTheThinkTime() throws IOException {
+		var ai = new MctsMrXAi(Duration.ofMillis(300), 1);
+		ai.onStart();
+		try {
+			GameState state = SearchStateTest.start(1);
+			// the first move builds the distance tables of the map
+			ai.pickMove(state, new AtomicBoolean(false));
+			long start = System.nanoTime();
+			Move move = ai.pickMove(state, new AtomicBoolean(false));
+			long millis = (System.nanoTime() - start) / 1_000_000;
+			assertThat(state.getAvailableMoves()).contains(move);
+			assertThat(millis >= 300 && millis < 2300).isTrue();
+			assertThat(ai.lastPlayouts() > 0).isTrue();
+		} finally {
+			ai.onTerminate();
+		}
+	}
+
+	@Test public void testStopsWhenTerminated() throws Exception {
+		var ai = new MctsMrXAi(Duration.ofMinutes(1), 1);
+		ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+		ai.onStart();
+		try {
+			GameState state = SearchStateTest.start(2);
+			var terminate = new AtomicBoolean(false);
+			timer.schedule(() -> terminate.set(true), 200, TimeUnit.MILLISECONDS);
+			long start = System.nanoTime();
+			Move move = ai.pickMove(state, terminate);
+			long millis = (System.nanoTime() - start) / 1_000_000;
+			assertThat(state.getAvailableMoves()).contains(move);
+			assertThat(millis < 5000).isTrue();
+		} finally {
+			timer.shutdownNow();
+			ai.onTerminate();
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.STANDARD24ROUNDS;
+
+/**
+ * Tests {@link MrXBeliefTracker} against the graph and against where Mr X really is in random
+ * games.
+ */
+public class MrXBeliefTrackerTest {
+
+	private static Set<Integer> asSet(int[] nodes) {
+		Set<Integer> set = new TreeSet<>();
+		for (int node : nodes) set.add(node);
+		return set;
+	}
+
+	@Test public void testRevealNarrowsToTheRevealedNode() throws IOException {
+		var tracker = new MrXBeliefTracker(new GameSetup(ScotlandYard.standardGraph(), STANDARD24ROUNDS));
+		tracker.apply(Ticket.TAXI, 45);
+		assertThat(asSet(tracker.candidates())).isEqualTo(Set.of(45));
+		assertThat(tracker.count()).isEqualTo(1);
+	}
+
+	@Test public void testHiddenMoveSpreadsAlongTheTicketsEdges() throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), STANDARD24ROUNDS);
+		var graph = setup.graph;
+		for (Ticket ticket : List.of(Ticket.TAXI, Ticket.BUS, Ticket.UNDERGROUND, Ticket.SECRET)) {
+			var starts = List.of(1, 46, 89, 140);
+			var tracker = new MrXBeliefTracker(setup, starts);
+			tracker.apply(ticket, -1);
+			Set<Integer> expected = new TreeSet<>();
+			for (int start : starts)
+				for (int neighbour : graph.adjacentNodes(start))
+					if (ticket == Ticket.SECRET || graph.edgeValueOrDefault(start, neighbour, ImmutableSet.of())
+							.stream().anyMatch(t -> t.requiredTicket() == ticket))
+						expected.add(neighbour);
+			assertThat(asSet(tracker.candidates())).isEqualTo(expected);
+		}
+	}
+
+	@Test public void testAlwaysContainsMrXsRealLocation() throws IOException {
+		for (int seed = 0; seed < 20; seed++) {
+			Random random = new Random(seed);
+			GameState model = SearchStateTest.start(seed);
+			var tracker = new MrXBeliefTracker(model.getSetup(), ScotlandYard.MRX_LOCATIONS);
+			int mrX = model.getAvailableMoves().iterator().next().source();
+			while (model.getWinner().isEmpty()) {
+				var moves = model.getAvailableMoves().asList();
+				Move move = moves.get(random.nextInt(moves.size()));
+				if (move.commencedBy().isMrX())
+					mrX = move.visit(new Move.FunctionalVisitor<>(m -> m.destination, m -> m.destination2));
+				model = model.advance(move);
+				if (!model.getWinner().isEmpty()) break;
+				tracker.update(model);
+				assertThat(tracker.contains(mrX)).isTrue();
+			}
+		}
+	}
+
+	@Test public void testWorksOnAMapAtTheNodeLimit() {
+		var setup = new GameSetup(SearchGraphTest.line(SearchGraph.MAX_NODE), STANDARD24ROUNDS);
+		int middle = SearchGraph.MAX_NODE / 2;
+		var tracker = new MrXBeliefTracker(setup, List.of(middle, SearchGraph.MAX_NODE));
+		tracker.apply(Ticket.TAXI, -1);
+		assertThat(tracker.candidates()).containsExactly(middle - 1, middle + 1, SearchGraph.MAX_NODE - 1);
+		tracker.apply(Ticket.BUS, -1);
+		assertThat(tracker.count()).isEqualTo(0);
+	}
+
+	@Test public void testResetStartsOver() throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), STANDARD24ROUNDS);
+		var tracker = new MrXBeliefTracker(setup, List.of(1, 46));
+		tracker.apply(Ticket.TAXI, 45);
+		tracker.reset();
+		assertThat(tracker.candidates()).containsExactly(1, 46);
+	}
+}
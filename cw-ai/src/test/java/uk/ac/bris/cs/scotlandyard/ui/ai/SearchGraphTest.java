@@ -0,0 +1,57 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+import com.google.common.graph.ValueGraphBuilder;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.TreeSet;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests {@link SearchGraph#compile(ImmutableValueGraph)}.
+ */
+public class SearchGraphTest {
+
+	/**
+	 * @param last the last node
+	 * @return nodes 1 to {@code last} joined in a line by taxi routes
+	 */
+	static ImmutableValueGraph<Integer, ImmutableSet<Transport>> line(int last) {
+		var graph = ValueGraphBuilder.undirected().<Integer, ImmutableSet<Transport>>immutable();
+		for (int node = 1; node < last; node++) graph.putEdgeValue(node, node + 1, ImmutableSet.of(Transport.TAXI));
+		return graph.build();
+	}
+
+	@Test public void testKeepsEveryEdgeAndTicket() throws IOException {
+		var graph = ScotlandYard.standardGraph();
+		var compiled = SearchGraph.compile(graph);
+		for (int node : graph.nodes()) {
+			Set<Integer> neighbours = new TreeSet<>();
+			for (int edge = compiled.start(node); edge < compiled.end(node); edge++) {
+				int neighbour = compiled.neighbour(edge);
+				neighbours.add(neighbour);
+				int tickets = 0;
+				for (Transport t : graph.edgeValueOrDefault(node, neighbour, ImmutableSet.of()))
+					tickets |= SearchGraph.mask(t.requiredTicket());
+				assertThat(compiled.tickets(edge)).isEqualTo(tickets);
+			}
+			assertThat(neighbours).isEqualTo(new TreeSet<>(graph.adjacentNodes(node)));
+		}
+	}
+
+	@Test public void testRejectsNodesTooLargeToPack() {
+		var graph = ValueGraphBuilder.undirected().<Integer, ImmutableSet<Transport>>immutable()
+				.putEdgeValue(1, SearchGraph.MAX_NODE + 1, ImmutableSet.of(Transport.TAXI))
+				.build();
+		assertThatThrownBy(() -> SearchGraph.compile(graph)).isInstanceOf(IllegalArgumentException.class);
+	}
+}
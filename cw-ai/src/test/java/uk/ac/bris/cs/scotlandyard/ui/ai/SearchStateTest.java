@@ -0,0 +1,148 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.STANDARD24ROUNDS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests {@link SearchState} against {@link MyGameStateFactory} over seeded random games, and that
+ * {@link SearchState#unmake()} and the incremental hash agree with states built from scratch.
+ */
+public class SearchStateTest {
+
+	private static final int GAMES = 40;
+
+	static GameState start(int seed) throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), STANDARD24ROUNDS);
+		var locations = ScotlandYard.generateDetectiveLocations(seed, ScotlandYard.DETECTIVES.size());
+		var detectives = ImmutableList.<Player>builder();
+		for (int i = 0; i < locations.size(); i++)
+			detectives.add(new Player(ScotlandYard.DETECTIVES.asList().get(i), defaultDetectiveTickets(),
+					locations.get(i)));
+		int mrX = ScotlandYard.generateMrXLocation(seed);
+		while (locations.contains(mrX)) mrX = ScotlandYard.generateMrXLocation(++seed);
+		return new MyGameStateFactory().build(setup,
+				new Player(Piece.MrX.MRX, defaultMrXTickets(), mrX), detectives.build());
+	}
+
+	private static int winnerOf(GameState state) {
+		ImmutableSet<Piece> winner = state.getWinner();
+		if (winner.isEmpty()) return SearchState.NONE;
+		return winner.contains(Piece.MrX.MRX) ? SearchState.MRX_WINS : SearchState.DETECTIVES_WIN;
+	}
+
+	// everything make and unmake touch, to compare a state before and after
+	private static List<Object> snapshot(SearchState state) {
+		List<Object> values = new ArrayList<>();
+		values.add(state.hash());
+		values.add(state.remaining());
+		values.add(state.round());
+		values.add(state.lastRevealedLocation());
+		values.add(state.depth());
+		values.add(state.winner());
+		for (int p = 0; p < SearchState.PIECES; p++) {
+			values.add(state.location(p));
+			for (Ticket ticket : Ticket.values()) values.add(state.tickets(p, ticket));
+		}
+		values.add(state.travelLog());
+		values.add(state.availableMoves());
+		return values;
+	}
+
+	@Test public void testMatchesTheModelOverRandomGames() throws IOException {
+		for (int seed = 0; seed < GAMES; seed++) {
+			Random random = new Random(seed);
+			GameState model = start(seed);
+			SearchState search = new SearchState(model);
+			while (true) {
+				assertThat(search.availableMoves()).isEqualTo(model.getAvailableMoves());
+				assertThat(search.winner()).isEqualTo(winnerOf(model));
+				assertThat(search.travelLog()).isEqualTo(model.getMrXTravelLog());
+				if (!model.getWinner().isEmpty()) break;
+				var moves = model.getAvailableMoves().asList();
+				Move move = moves.get(random.nextInt(moves.size()));
+				model = model.advance(move);
+				search.make(PackedMove.pack(move));
+			}
+		}
+	}
+
+	@Test public void testUnmakeRestoresTheStateAndHash() throws IOException {
+		MoveBuffer buffer = new MoveBuffer();
+		for (int seed = 0; seed < GAMES / 4; seed++) {
+			Random random = new Random(seed);
+			SearchState search = new SearchState(start(seed));
+			List<Long> played = new ArrayList<>();
+			while (search.winner() == SearchState.NONE) {
+				List<Object> before = snapshot(search);
+				search.generateMoves(buffer);
+				long[] moves = new long[buffer.size()];
+				for (int i = 0; i < moves.length; i++) moves[i] = buffer.get(i);
+				for (long move : moves) {
+					search.make(move);
+					assertThat(search.depth()).isEqualTo(played.size() + 1);
+					search.unmake();
+					assertThat(snapshot(search)).isEqualTo(before);
+				}
+				long move = moves[random.nextInt(moves.length)];
+				search.make(move);
+				played.add(move);
+			}
+			List<Object> end = snapshot(search);
+			// unwinding the whole game and replaying it lands on the same state
+			for (int i = 0; i < played.size(); i++) search.unmake();
+			assertThat(search.depth()).isEqualTo(0);
+			for (long move : played) search.make(move);
+			assertThat(snapshot(search)).isEqualTo(end);
+		}
+	}
+
+	@Test public void testIncrementalHashMatchesAHashFromScratch() throws IOException {
+		for (int seed = 0; seed < GAMES; seed++) {
+			Random random = new Random(seed);
+			GameState model = start(seed);
+			int mrX = model.getAvailableMoves().iterator().next().source();
+			SearchState search = new SearchState(model);
+			while (model.getWinner().isEmpty()) {
+				var moves = model.getAvailableMoves().asList();
+				Move move = moves.get(random.nextInt(moves.size()));
+				if (move.commencedBy().isMrX()) mrX = destinationOf(move);
+				model = model.advance(move);
+				search.make(PackedMove.pack(move));
+				// a board hides a detective stuck this round, see Zobrist.hash
+				if (!model.getWinner().isEmpty() || search.remaining() != remainingOf(model)) continue;
+				assertThat(search.hash()).isEqualTo(Zobrist.hash(model, mrX));
+			}
+		}
+	}
+
+	private static int destinationOf(Move move) {
+		return move.visit(new Move.FunctionalVisitor<>(m -> m.destination, m -> m.destination2));
+	}
+
+	private static int remainingOf(GameState model) {
+		int remaining = 0;
+		for (Move move : model.getAvailableMoves()) remaining |= 1 << PackedMove.pieceIndex(move.commencedBy());
+		return remaining;
+	}
+}
@@ -0,0 +1,109 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.TicketBoard;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.STANDARD24ROUNDS;
+
+/**
+ * Tests {@link TicketReachability} against a breadth first search over (node, tickets left)
+ * states and against {@link DistanceTable} when tickets don't run out.
+ */
+public class TicketReachabilityTest {
+
+	private static final Ticket[] USABLE = {Ticket.TAXI, Ticket.BUS, Ticket.UNDERGROUND, Ticket.SECRET};
+
+	// one search state per (node, tickets left), each ticket count fits in a byte
+	private static int[] bruteForce(ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph,
+	                                int source, Map<Ticket, Integer> tickets, int nodes) {
+		int[] distances = new int[nodes];
+		Arrays.fill(distances, DistanceTable.UNREACHABLE);
+		Set<Long> seen = new HashSet<>();
+		var queue = new ArrayDeque<long[]>();
+		long start = source;
+		for (Ticket ticket : USABLE) start = start << 8 | tickets.getOrDefault(ticket, 0);
+		queue.add(new long[]{start, 0});
+		seen.add(start);
+		while (!queue.isEmpty()) {
+			long[] head = queue.remove();
+			int node = (int) (head[0] >>> 32);
+			int moves = (int) head[1];
+			if (distances[node] == DistanceTable.UNREACHABLE) distances[node] = moves;
+			for (int neighbour : graph.adjacentNodes(node)) {
+				var transports = graph.edgeValueOrDefault(node, neighbour, ImmutableSet.of());
+				for (int t = 0; t < USABLE.length; t++) {
+					Ticket ticket = USABLE[t];
+					boolean usable = ticket == Ticket.SECRET
+							|| transports.stream().anyMatch(transport -> transport.requiredTicket() == ticket);
+					int shift = 8 * (USABLE.length - 1 - t);
+					if (!usable || ((head[0] >>> shift) & 0xFF) == 0) continue;
+					long next = ((long) neighbour << 32) | ((head[0] & 0xFFFFFFFFL) - (1L << shift));
+					if (seen.add(next)) queue.add(new long[]{next, moves + 1});
+				}
+			}
+		}
+		return distances;
+	}
+
+	private static TicketBoard boardOf(Map<Ticket, Integer> tickets) {
+		return ticket -> tickets.getOrDefault(ticket, 0);
+	}
+
+	@Test public void testMinMovesMatchesBruteForce() throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), STANDARD24ROUNDS);
+		var reachability = TicketReachability.of(setup);
+		var nodes = SearchGraph.of(setup).maxNode() + 1;
+		var ticketSets = Arrays.<Map<Ticket, Integer>>asList(
+				Map.of(Ticket.TAXI, 3),
+				Map.of(Ticket.TAXI, 2, Ticket.BUS, 2, Ticket.UNDERGROUND, 1),
+				Map.of(Ticket.BUS, 1, Ticket.UNDERGROUND, 2),
+				Map.of(Ticket.TAXI, 2, Ticket.SECRET, 2),
+				Map.of());
+		for (int source : new int[]{1, 46, 89, 108, 153, 194})
+			for (Map<Ticket, Integer> tickets : ticketSets) {
+				int[] expected = bruteForce(setup.graph, source, tickets, nodes);
+				for (int target : setup.graph.nodes())
+					assertThat(reachability.minMoves(source, target, boardOf(tickets))).isEqualTo(expected[target]);
+			}
+	}
+
+	@Test public void testPlentyOfTicketsMatchesTheDistanceTable() throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), STANDARD24ROUNDS);
+		var reachability = TicketReachability.of(setup);
+		var distances = DistanceTable.of(setup, DistanceTable.Transports.DETECTIVE);
+		var tickets = boardOf(Map.of(Ticket.TAXI, 50, Ticket.BUS, 50, Ticket.UNDERGROUND, 50));
+		for (int source : new int[]{13, 67, 140, 198})
+			for (int target : setup.graph.nodes())
+				assertThat(reachability.minMoves(source, target, tickets)).isEqualTo(distances.distance(source, target));
+	}
+
+	@Test public void testReachableIsTheNodesWithinReach() throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), STANDARD24ROUNDS);
+		var reachability = TicketReachability.of(setup);
+		var tickets = boardOf(Map.of(Ticket.TAXI, 4, Ticket.BUS, 2, Ticket.UNDERGROUND, 1));
+		for (int moves = 0; moves <= 4; moves++) {
+			long[] bits = reachability.reachable(91, tickets, moves);
+			for (int node : setup.graph.nodes()) {
+				int min = reachability.minMoves(91, node, tickets);
+				boolean expected = min != DistanceTable.UNREACHABLE && min <= moves;
+				assertThat((bits[node >>> 6] & (1L << node)) != 0).isEqualTo(expected);
+			}
+		}
+	}
+}
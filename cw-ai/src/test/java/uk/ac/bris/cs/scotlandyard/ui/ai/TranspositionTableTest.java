@@ -0,0 +1,95 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests {@link TranspositionTable}, including that entries written by racing threads are never
+ * seen torn.
+ */
+public class TranspositionTableTest {
+
+	private static final long KEY = 0x9E3779B97F4A7C15L;
+	private static final long MOVE = PackedMove.single(1, 13, 0, 14);
+
+	@Test public void testProbeReturnsTheStoredEntry() {
+		var table = new TranspositionTable(1);
+		table.store(KEY, 7, TranspositionTable.LOWER, -12345, MOVE);
+		var entry = new TranspositionTable.Entry();
+		assertThat(table.probe(KEY, entry)).isTrue();
+		assertThat(entry.depth).isEqualTo(7);
+		assertThat(entry.bound).isEqualTo(TranspositionTable.LOWER);
+		assertThat(entry.score).isEqualTo(-12345);
+		assertThat(entry.move).isEqualTo(MOVE);
+		assertThat(table.hits()).isEqualTo(1);
+	}
+
+	@Test public void testProbeMissesAKeyNeverStored() {
+		var table = new TranspositionTable(1);
+		table.store(KEY, 3, TranspositionTable.EXACT, 1, MOVE);
+		assertThat(table.probe(KEY + 1, new TranspositionTable.Entry())).isFalse();
+		assertThat(table.misses()).isEqualTo(1);
+	}
+
+	@Test public void testStoreWithoutAMoveKeepsTheOldMove() {
+		var table = new TranspositionTable(1);
+		table.store(KEY, 3, TranspositionTable.EXACT, 1, MOVE);
+		table.store(KEY, 4, TranspositionTable.UPPER, 2, PackedMove.NONE);
+		var entry = new TranspositionTable.Entry();
+		assertThat(table.probe(KEY, entry)).isTrue();
+		assertThat(entry.depth).isEqualTo(4);
+		assertThat(entry.move).isEqualTo(MOVE);
+	}
+
+	@Test public void testClearEmptiesTheTable() {
+		var table = new TranspositionTable(1);
+		table.store(KEY, 3, TranspositionTable.EXACT, 1, MOVE);
+		table.clear();
+		assertThat(table.probe(KEY, new TranspositionTable.Entry())).isFalse();
+		assertThat(table.stores()).isEqualTo(0);
+	}
+
+	// every field of an entry is derived from its key, so a torn entry shows up as a mismatch
+	private static int depthOf(long key) { return (int) (key >>> 40) & 0xFF; }
+
+	private static int scoreOf(long key) { return (int) (key * 31); }
+
+	private static long moveOf(long key) {
+		return PackedMove.single(1, (int) key & 0xFF, 0, (int) (key >>> 8) & 0xFF);
+	}
+
+	@Test public void testRacingThreadsNeverSeeATornEntry() throws InterruptedException {
+		// a small table and key space so threads keep overwriting each other's buckets
+		var table = new TranspositionTable(1);
+		AtomicInteger torn = new AtomicInteger(), hits = new AtomicInteger();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			long seed = t;
+			threads.add(new Thread(() -> {
+				SplittableRandom random = new SplittableRandom(seed);
+				var entry = new TranspositionTable.Entry();
+				for (int i = 0; i < 200_000; i++) {
+					long key = new SplittableRandom(random.nextInt(1 << 16)).nextLong();
+					if (random.nextBoolean()) {
+						table.store(key, depthOf(key), TranspositionTable.EXACT, scoreOf(key), moveOf(key));
+					} else if (table.probe(key, entry)) {
+						hits.incrementAndGet();
+						if (entry.depth != depthOf(key) || entry.score != scoreOf(key)
+								|| entry.move != moveOf(key) || entry.bound != TranspositionTable.EXACT)
+							torn.incrementAndGet();
+					}
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) thread.join();
+		assertThat(hits.get() > 0).isTrue();
+		assertThat(torn.get()).isEqualTo(0);
+	}
+}
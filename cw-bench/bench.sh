@@ -0,0 +1,28 @@
+#!/usr/bin/env bash
+# Runs the JMH benchmarks with the gc profiler and compares them against a saved baseline.
+#
+#   ./bench.sh run [jmh args]       run, results in target/results.json
+#   ./bench.sh baseline [jmh args]  run and save the results as baseline.json
+#   ./bench.sh compare [jmh args]   run and report regressions against baseline.json,
+#                                   exits 1 if there are any; THRESHOLD=5 sets the percentage
+#
+# e.g. ./bench.sh compare GameStateBenchmark.advance -f 1
+#      ./bench.sh run ScalingBenchmark -p nodes=1000,10000
+set -euo pipefail
+cd "$(dirname "$0")"
+
+mode=${1:-run}
+shift || true
+
+(cd ../cw-model && ./mvnw -q -B install -DskipTests)
+(cd ../cw-ai && ./mvnw -q -B install -DskipTests)
+(cd ../cw-model && ./mvnw -q -B -f ../cw-bench/pom.xml package)
+mkdir -p target
+java -jar target/benchmarks.jar -prof gc -rf json -rff target/results.json "$@"
+
+case "$mode" in
+	run) ;;
+	baseline) cp target/results.json baseline.json && echo "Saved baseline.json" ;;
+	compare) python3 compare.py baseline.json target/results.json --threshold "${THRESHOLD:-5}" ;;
+	*) echo "Unknown mode $mode, expected run, baseline or compare" >&2; exit 2 ;;
+esac
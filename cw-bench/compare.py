@@ -0,0 +1,74 @@
+#!/usr/bin/env python3
+"""Compares two JMH JSON result files and reports benchmarks that got slower or allocate more.
+
+A benchmark regresses when its score is worse than the baseline by more than the threshold and
+by more than the two error margins combined, so noise alone doesn't fail a run. Allocation is
+compared on gc.alloc.rate.norm (bytes per operation), which is stable enough to compare directly.
+"""
+import argparse
+import json
+import sys
+
+ALLOC = "·gc.alloc.rate.norm"
+
+
+def key(result):
+    params = ",".join(f"{k}={v}" for k, v in sorted(result.get("params", {}).items()))
+    name = result["benchmark"].rsplit(".", 2)[-2:]
+    return ".".join(name) + (f"({params})" if params else "")
+
+
+def load(path):
+    with open(path) as f:
+        return {key(r): r for r in json.load(f)}
+
+
+def worse_by(baseline, current, higher_is_better):
+    """The relative change in the bad direction, negative when current is better."""
+    if baseline == 0:
+        return 0.0
+    change = (current - baseline) / baseline
+    return -change if higher_is_better else change
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__)
+    parser.add_argument("baseline")
+    parser.add_argument("current")
+    parser.add_argument("--threshold", type=float, default=5.0, help="allowed slowdown in percent")
+    args = parser.parse_args()
+    baseline, current = load(args.baseline), load(args.current)
+    limit = args.threshold / 100
+
+    regressions = 0
+    print(f"{'benchmark':60} {'baseline':>14} {'current':>14} {'change':>8}")
+    for name in sorted(current):
+        if name not in baseline:
+            print(f"{name:60} {'-':>14} {current[name]['primaryMetric']['score']:14.3f}      new")
+            continue
+        old, new = baseline[name], current[name]
+        metric, old_metric = new["primaryMetric"], old["primaryMetric"]
+        higher_is_better = new["mode"] == "thrpt"
+        worse = worse_by(old_metric["score"], metric["score"], higher_is_better)
+        margin = abs(old_metric.get("scoreError") or 0) + abs(metric.get("scoreError") or 0)
+        slower = worse > limit and abs(metric["score"] - old_metric["score"]) > margin
+        flag = "  SLOWER" if slower else ""
+
+        old_alloc = old.get("secondaryMetrics", {}).get(ALLOC, {}).get("score")
+        new_alloc = new.get("secondaryMetrics", {}).get(ALLOC, {}).get("score")
+        allocates_more = (old_alloc is not None and new_alloc is not None
+                          and worse_by(old_alloc, new_alloc, False) > limit and new_alloc - old_alloc > 8)
+        if allocates_more:
+            flag += f"  ALLOC {old_alloc:.0f} -> {new_alloc:.0f} B/op"
+
+        regressions += slower or allocates_more
+        print(f"{name:60} {old_metric['score']:14.3f} {metric['score']:14.3f} {-worse:+8.1%}{flag}")
+
+    for name in sorted(set(baseline) - set(current)):
+        print(f"{name:60} missing from the current run")
+    print(f"{regressions} regression(s) over {args.threshold:g}%")
+    return 1 if regressions else 0
+
+
+if __name__ == "__main__":
+    sys.exit(main())
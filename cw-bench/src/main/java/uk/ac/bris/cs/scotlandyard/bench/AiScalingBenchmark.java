@@ -0,0 +1,97 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.ui.ai.AlphaBetaDetectiveAi;
+import uk.ac.bris.cs.scotlandyard.ui.ai.DistanceTable;
+import uk.ac.bris.cs.scotlandyard.ui.ai.MctsMrXAi;
+import uk.ac.bris.cs.scotlandyard.ui.ai.SearchGraph;
+
+/**
+ * Benchmarks the Ais and their precomputation on generated maps of growing size, see
+ * {@link GeneratedMap}.
+ * <br>
+ * {@link #distanceRow()} is one row of a {@link DistanceTable}, the BFS each source pays the
+ * first time it is asked about; the maps go up to {@link SearchGraph#MAX_NODE}, the largest
+ * the Ais compile. Both Ais stop at
+ * {@link #THINK_TIME}, so what grows with the map is their time over it and, for MCTS, the
+ * playouts that fit in it, reported as the {@code playouts} counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AiScalingBenchmark {
+
+	/**
+	 * The think time given to each Ai
+	 */
+	public static final Duration THINK_TIME = Duration.ofMillis(100);
+
+	@Param({"1000", "10000", "65535"})
+	public int nodes;
+
+	private SearchGraph graph;
+	private GameState mrXTurn, detectiveTurn;
+	private MctsMrXAi mcts;
+	private AlphaBetaDetectiveAi alphaBeta;
+
+	/**
+	 * MCTS playouts per move
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Playouts {
+		public long playouts;
+	}
+
+	@Setup public void setup() {
+		var map = new GeneratedMap(nodes);
+		graph = SearchGraph.compile(map.setup.graph);
+		mrXTurn = map.build();
+		detectiveTurn = mrXTurn.advance(mrXTurn.getAvailableMoves().iterator().next());
+		mcts = new MctsMrXAi(THINK_TIME, 1);
+		alphaBeta = new AlphaBetaDetectiveAi(THINK_TIME, 16);
+		mcts.onStart();
+		alphaBeta.onStart();
+	}
+
+	@TearDown public void tearDown() {
+		mcts.onTerminate();
+		alphaBeta.onTerminate();
+	}
+
+	@Benchmark public int distanceRow() {
+		return DistanceTable.compute(graph, DistanceTable.Transports.DETECTIVE).distance(1, nodes);
+	}
+
+	@Benchmark public Move mctsMrX(Playouts playouts) {
+		Move move = mcts.pickMove(mrXTurn, new AtomicBoolean());
+		playouts.playouts += mcts.lastPlayouts();
+		return move;
+	}
+
+	@Benchmark public Move alphaBetaDetectives() {
+		return alphaBeta.pickMove(detectiveTurn, new AtomicBoolean());
+	}
+}
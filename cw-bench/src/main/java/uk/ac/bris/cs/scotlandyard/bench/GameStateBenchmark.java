@@ -0,0 +1,112 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Benchmarks {@link MyGameStateFactory} on the standard map with five detectives.
+ * <br>
+ * A state computes its available moves once and keeps them, so the move generation benchmarks
+ * build a fresh state every call; subtract {@link #build()} to get move generation alone.
+ * {@link #advance(ToAdvance)} is run once for each piece to move.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GameStateBenchmark {
+
+	private final MyGameStateFactory factory = new MyGameStateFactory();
+	private GameSetup setup;
+	private Player mrX;
+	private ImmutableList<Player> detectives;
+
+	/**
+	 * Mr X with or without double tickets
+	 */
+	@State(Scope.Benchmark)
+	public static class MrXPlayer {
+		@Param({"true", "false"})
+		public boolean doubles;
+		Player player;
+
+		@Setup public void setup() {
+			var tickets = new HashMap<>(ScotlandYard.defaultMrXTickets());
+			if (!doubles) tickets.put(Ticket.DOUBLE, 0);
+			player = new Player(Piece.MrX.MRX, ImmutableMap.copyOf(tickets), 106);
+		}
+	}
+
+	/**
+	 * A state where the given piece is to move, and its first available move
+	 */
+	@State(Scope.Benchmark)
+	public static class ToAdvance {
+		@Param({"MRX", "RED", "GREEN", "BLUE", "WHITE", "YELLOW"})
+		public String piece;
+		GameState state;
+		Move move;
+
+		@Setup public void setup(GameStateBenchmark benchmark) {
+			// play first moves until it's the chosen piece's turn
+			GameState state = benchmark.build();
+			while (true) {
+				ImmutableSet<Move> moves = state.getAvailableMoves();
+				var mine = moves.stream().filter(m -> m.commencedBy().toString().equals(piece)).findFirst();
+				if (mine.isPresent()) {
+					this.state = state;
+					this.move = mine.get();
+					return;
+				}
+				state = state.advance(moves.iterator().next());
+			}
+		}
+	}
+
+	@Setup public void setup() throws IOException {
+		setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		mrX = new Player(Piece.MrX.MRX, ScotlandYard.defaultMrXTickets(), 106);
+		var locations = ScotlandYard.generateDetectiveLocations(0, ScotlandYard.DETECTIVES.size());
+		var builder = ImmutableList.<Player>builder();
+		int i = 0;
+		for (Piece detective : ScotlandYard.DETECTIVES)
+			builder.add(new Player(detective, ScotlandYard.defaultDetectiveTickets(), locations.get(i++)));
+		detectives = builder.build();
+	}
+
+	@Benchmark public GameState build() { return factory.build(setup, mrX, detectives); }
+
+	@Benchmark public ImmutableSet<Move> mrXMoves(MrXPlayer mrX) {
+		return factory.build(setup, mrX.player, detectives).getAvailableMoves();
+	}
+
+	@Benchmark public GameState advance(ToAdvance toAdvance) { return toAdvance.state.advance(toAdvance.move); }
+}
@@ -0,0 +1,49 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import uk.ac.bris.cs.scotlandyard.headless.MapGenerator;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+/**
+ * A {@link MapGenerator} map with Mr X and five detectives at seeded random nodes, shared by
+ * the scaling benchmarks.
+ */
+final class GeneratedMap {
+
+	private static final long SEED = 0;
+
+	final String text;
+	final GameSetup setup;
+	final Player mrX;
+	final ImmutableList<Player> detectives;
+
+	GeneratedMap(int nodes) {
+		this.text = new MapGenerator(nodes, SEED).graph();
+		this.setup = new GameSetup(ScotlandYard.readGraph(text), ScotlandYard.STANDARD24ROUNDS);
+		var random = new Random(SEED);
+		Set<Integer> taken = new HashSet<>();
+		this.mrX = new Player(Piece.MrX.MRX, ScotlandYard.defaultMrXTickets(), free(random, nodes, taken));
+		var builder = ImmutableList.<Player>builder();
+		for (Piece detective : ScotlandYard.DETECTIVES)
+			builder.add(new Player(detective, ScotlandYard.defaultDetectiveTickets(), free(random, nodes, taken)));
+		this.detectives = builder.build();
+	}
+
+	private static int free(Random random, int nodes, Set<Integer> taken) {
+		int node;
+		do node = 1 + random.nextInt(nodes); while (!taken.add(node));
+		return node;
+	}
+
+	GameState build() { return new MyGameStateFactory().build(setup, mrX, detectives); }
+}
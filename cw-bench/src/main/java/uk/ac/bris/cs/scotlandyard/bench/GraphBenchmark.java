@@ -0,0 +1,53 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+import com.google.common.io.Resources;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * Benchmarks reading the map resources. {@link #readGraph()} parses text already in memory,
+ * {@link #pngMapPositionEntries()} includes reading pos.txt from the classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GraphBenchmark {
+
+	private String graph;
+
+	@Setup public void setup() throws IOException {
+		graph = Resources.toString(Resources.getResource("graph.txt"), StandardCharsets.UTF_8);
+	}
+
+	@Benchmark public ImmutableValueGraph<Integer, ImmutableSet<Transport>> readGraph() {
+		return ScotlandYard.readGraph(graph);
+	}
+
+	@Benchmark public ImmutableMap<Integer, Entry<Integer, Integer>> pngMapPositionEntries()
+			throws IOException {
+		return ScotlandYard.pngMapPositionEntries();
+	}
+}
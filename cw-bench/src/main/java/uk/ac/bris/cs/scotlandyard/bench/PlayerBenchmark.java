@@ -0,0 +1,45 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Benchmarks the ticket updates {@link Player} does on every move; the iterable variants are
+ * what a double move uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PlayerBenchmark {
+
+	private final Player mrX = new Player(Piece.MrX.MRX, ScotlandYard.defaultMrXTickets(), 106);
+	private final ImmutableList<Ticket> doubleMove =
+			ImmutableList.of(Ticket.DOUBLE, Ticket.TAXI, Ticket.SECRET);
+
+	@Benchmark public Player use() { return mrX.use(Ticket.TAXI); }
+
+	@Benchmark public Player give() { return mrX.give(Ticket.TAXI); }
+
+	@Benchmark public Player useAll() { return mrX.use(doubleMove); }
+
+	@Benchmark public Player giveAll() { return mrX.give(doubleMove); }
+}
@@ -0,0 +1,67 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.CompiledGraph;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * Benchmarks {@link uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory} on generated maps of
+ * growing size, see {@link GeneratedMap}.
+ * <br>
+ * As in {@link GameStateBenchmark}, {@link #mrXMoves()} builds a fresh state every call, so
+ * subtract {@link #build()} for move generation alone. Moves only look at a node's neighbours,
+ * so anything beyond {@link #readGraph()} and {@link #compile()} that grows with the map is
+ * a cost per node where there should be none.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ScalingBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	public int nodes;
+
+	private GeneratedMap map;
+	private GameState state;
+	private Move move;
+
+	@Setup public void setup() {
+		map = new GeneratedMap(nodes);
+		state = map.build();
+		move = state.getAvailableMoves().iterator().next();
+	}
+
+	@Benchmark public ImmutableValueGraph<Integer, ImmutableSet<Transport>> readGraph() {
+		return ScotlandYard.readGraph(map.text);
+	}
+
+	@Benchmark public CompiledGraph compile() { return CompiledGraph.compile(map.setup.graph); }
+
+	@Benchmark public GameState build() { return map.build(); }
+
+	@Benchmark public ImmutableSet<Move> mrXMoves() { return map.build().getAvailableMoves(); }
+
+	@Benchmark public GameState advance() { return state.advance(move); }
+}
@@ -5,21 +5,33 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.graph.ImmutableValueGraph;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
 
 import io.github.lukehutch.fastclasspathscanner.FastClasspathScanner;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.geometry.Point2D;
 import javafx.scene.image.Image;
 import uk.ac.bris.cs.scotlandyard.model.Ai;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+import uk.ac.bris.cs.scotlandyard.ui.MapPyramid;
+import uk.ac.bris.cs.scotlandyard.ui.MapTileLayer;
+import uk.ac.bris.cs.scotlandyard.ui.Utils;
 
 import static java.lang.String.format;
 import static java.util.function.Function.identity;
@@ -30,16 +42,23 @@ import static java.util.stream.Collectors.toMap;
  */
 public final class ResourceManager {
 
-	public enum ImageResource {ICON, MAP, UOB_LOGO}
+	private static final Logger LOGGER = LoggerFactory.getLogger(ResourceManager.class);
+
+	public enum ImageResource {ICON, UOB_LOGO}
+
+	private static final int MAP_TILE_SIZE = 512;
 
 	private Map<ImageResource, Image> imageResources;
+	private MapPyramid map;
+	private final ReadOnlyObjectWrapper<Image> mapPreview = new ReadOnlyObjectWrapper<>();
 	private Map<Ticket, Image> ticketResources;
 	private Map<Integer, Entry<Integer, Integer>> mapCoordinates;
 	private ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph;
 
 	/**
 	 * Loads all resources into memory <br>
-	 * This should be called before any resources are required
+	 * This should be called before any resources are required; only the map preview is
+	 * decoded in the background, see {@link #mapPreviewProperty()}
 	 *
 	 * @throws IOException if any of the resources cannot be found
 	 */
@@ -47,10 +66,22 @@ public final class ResourceManager {
 
 		// shared images
 		imageResources = ImmutableMap.of(
-				ImageResource.MAP, new Image(ScotlandYard.pngMapAsStream(), -1, -1, true, true),
 				ImageResource.UOB_LOGO, loadImage("/uob_logo.png"),
 				ImageResource.ICON, loadImage("/icon.png"));
 
+		// only the header is read here, the map is decoded as tiles when shown
+		try (var stream = ScotlandYard.pngMapAsStream()) {
+			map = new MapPyramid(stream.readAllBytes(), MAP_TILE_SIZE);
+		}
+		var preview = new Thread(() -> {
+			try {
+				Image image = MapTileLayer.toImage(map.decodePreview());
+				Platform.runLater(() -> mapPreview.set(image));
+			} catch (IOException e) { Utils.handleFatalException(e); }
+		}, "map-preview");
+		preview.setDaemon(true);
+		preview.start();
+
 		ticketResources = ImmutableMap.copyOf(Stream.of(Ticket.values()).collect(toMap(
 				identity(),
 				ticket -> loadImage(format("/tickets/%s.png", ticket.name().toLowerCase())))));
@@ -65,7 +96,14 @@ public final class ResourceManager {
 
 	public Image getImage(ImageResource resource) { return imageResources.get(resource); }
 
-	@Nonnull public Image getMap() { return getImage(ImageResource.MAP); }
+	@Nonnull public MapPyramid getMapPyramid() { return map; }
+
+	/**
+	 * @return the whole map at {@link MapPyramid#previewLevel()}, null until decoded
+	 */
+	@Nonnull public ReadOnlyObjectProperty<Image> mapPreviewProperty() {
+		return mapPreview.getReadOnlyProperty();
+	}
 
 	@Nonnull public Image getTicket(Ticket ticket) { return ticketResources.get(ticket); }
 
@@ -88,7 +126,41 @@ public final class ResourceManager {
 		}
 	}
 
-	@SuppressWarnings("unchecked") public static ImmutableList<Ai> scanAis() {
+	/**
+	 * Set to true to also scan the whole classpath for Ais missing from the index, see
+	 * {@link #scanAis()}
+	 */
+	public static final String SCAN_AIS_PROPERTY = "scotlandyard.scanAis";
+
+	/**
+	 * Instantiates every Ai listed in a {@code META-INF/services/uk.ac.bris.cs.scotlandyard.model.Ai}
+	 * file on the classpath, which is read without touching any other class. Ais not listed are
+	 * only found with {@code -Dscotlandyard.scanAis=true}, which falls back to scanning every
+	 * class on the classpath; that takes seconds and grows with the number of jars.
+	 * <br>
+	 * Every Ai found is offered for both sides, so an indexed Ai has to play Mr X as well as the
+	 * detectives.
+	 *
+	 * @return the Ais found, in classpath order
+	 */
+	public static ImmutableList<Ai> scanAis() {
+		long start = System.nanoTime();
+		var ais = new LinkedHashMap<Class<?>, Ai>();
+		try {
+			for (Ai ai : ServiceLoader.load(Ai.class)) ais.putIfAbsent(ai.getClass(), ai);
+		} catch (ServiceConfigurationError e) {
+			throw new RuntimeException("Unable to load Ais from the service index", e);
+		}
+		int indexed = ais.size();
+		boolean scan = Boolean.getBoolean(SCAN_AIS_PROPERTY);
+		if (scan) for (Ai ai : scanClasspath()) ais.putIfAbsent(ai.getClass(), ai);
+		LOGGER.info("Found {} Ais ({} indexed{}) in {} ms", ais.size(), indexed,
+				scan ? ", " + (ais.size() - indexed) + " scanned" : "",
+				(System.nanoTime() - start) / 1_000_000);
+		return ImmutableList.copyOf(ais.values());
+	}
+
+	@SuppressWarnings("unchecked") private static ImmutableList<Ai> scanClasspath() {
 		var found = new FastClasspathScanner().scan().getNamesOfClassesImplementing(Ai.class);
 		return found.stream().map(c -> {
 			try {
@@ -0,0 +1,104 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The outcome of a {@link HeadlessRunner} batch: who won, how long the games were and how long
+ * each side took to pick a move.
+ */
+public final class BatchResult {
+
+	/**
+	 * Order statistics of a set of samples
+	 */
+	public static final class Summary {
+		public final int count;
+		public final double mean;
+		public final long min, p50, p95, p99, max;
+
+		Summary(long[] samples, int size) {
+			long[] sorted = Arrays.copyOf(samples, size);
+			Arrays.sort(sorted);
+			this.count = size;
+			this.mean = size == 0 ? 0 : Arrays.stream(sorted).sum() / (double) size;
+			this.min = percentile(sorted, 0);
+			this.p50 = percentile(sorted, 50);
+			this.p95 = percentile(sorted, 95);
+			this.p99 = percentile(sorted, 99);
+			this.max = percentile(sorted, 100);
+		}
+
+		private static long percentile(long[] sorted, int percentile) {
+			if (sorted.length == 0) return 0;
+			return sorted[(int) Math.ceil(percentile / 100d * sorted.length) - (percentile == 0 ? 0 : 1)];
+		}
+
+		@Override public String toString() {
+			return String.format("n=%d mean=%.1f min=%d p50=%d p95=%d p99=%d max=%d",
+					count, mean, min, p50, p95, p99, max);
+		}
+	}
+
+	public final int games;
+	public final int mrXWins;
+	public final int detectiveWins;
+	/**
+	 * Rounds played per game, i.e. the size of Mr X's travel log at the end
+	 */
+	@Nonnull public final Summary rounds;
+	/**
+	 * Moves made per game by both sides
+	 */
+	@Nonnull public final Summary moves;
+	/**
+	 * Mr X's time per move, in microseconds
+	 */
+	@Nonnull public final Summary mrXThinkMicros;
+	/**
+	 * The detectives' time per move, in microseconds
+	 */
+	@Nonnull public final Summary detectiveThinkMicros;
+	/**
+	 * Wall clock time of the whole batch, in milliseconds
+	 */
+	public final long elapsedMillis;
+
+	BatchResult(int mrXWins, int detectiveWins,
+	            Summary rounds, Summary moves,
+	            Summary mrXThinkMicros, Summary detectiveThinkMicros,
+	            long elapsedMillis) {
+		this.games = mrXWins + detectiveWins;
+		this.mrXWins = mrXWins;
+		this.detectiveWins = detectiveWins;
+		this.rounds = rounds;
+		this.moves = moves;
+		this.mrXThinkMicros = mrXThinkMicros;
+		this.detectiveThinkMicros = detectiveThinkMicros;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * @return the fraction of games Mr X won
+	 */
+	public double mrXWinRate() { return games == 0 ? 0 : mrXWins / (double) games; }
+
+	/**
+	 * @return the fraction of games the detectives won
+	 */
+	public double detectiveWinRate() { return games == 0 ? 0 : detectiveWins / (double) games; }
+
+	@Override public String toString() {
+		return String.format("%d games in %d ms (%.1f games/s)%n"
+						+ "  Mr X wins        %d (%.1f%%)%n"
+						+ "  detective wins   %d (%.1f%%)%n"
+						+ "  rounds           %s%n"
+						+ "  moves            %s%n"
+						+ "  Mr X think us    %s%n"
+						+ "  detective think  %s",
+				games, elapsedMillis, elapsedMillis == 0 ? 0 : games * 1000d / elapsedMillis,
+				mrXWins, 100 * mrXWinRate(), detectiveWins, 100 * detectiveWinRate(),
+				rounds, moves, mrXThinkMicros, detectiveThinkMicros);
+	}
+}
@@ -0,0 +1,277 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+
+/**
+ * Plays whole games between two {@link Ai}s without any UI, by calling
+ * {@link GameState#advance(Move)} directly until there is a winner, many games at once on a
+ * thread pool.
+ * <br>
+ * Players are given as templates: a player at {@link #RANDOM} gets a start location from
+ * {@link ScotlandYard#generateMrXLocation(int)} or
+ * {@link ScotlandYard#generateDetectiveLocations(int, int)}, seeded with the game number so a
+ * batch can be replayed. Every pool thread gets its own instance of each {@link Ai}, so they
+ * don't need to be thread safe; no move timeout is enforced.
+ */
+public final class HeadlessRunner {
+
+	/**
+	 * Location of a template player that should get a seeded start location
+	 */
+	public static final int RANDOM = -1;
+
+	private final Factory<GameState> factory;
+	private final GameSetup setup;
+	private final Player mrX;
+	private final ImmutableList<Player> detectives;
+	private final Supplier<? extends Ai> mrXAi;
+	private final Supplier<? extends Ai> detectiveAi;
+
+	/**
+	 * @param factory the game state factory
+	 * @param setup the game setup
+	 * @param mrX the Mr X template
+	 * @param detectives the detective templates
+	 * @param mrXAi creates the Ai playing Mr X, called once per pool thread
+	 * @param detectiveAi creates the Ai playing the detectives, called once per pool thread
+	 */
+	public HeadlessRunner(@Nonnull Factory<GameState> factory,
+	                      @Nonnull GameSetup setup,
+	                      @Nonnull Player mrX,
+	                      @Nonnull ImmutableList<Player> detectives,
+	                      @Nonnull Supplier<? extends Ai> mrXAi,
+	                      @Nonnull Supplier<? extends Ai> detectiveAi) {
+		this.factory = factory;
+		this.setup = setup;
+		this.mrX = mrX;
+		this.detectives = detectives;
+		this.mrXAi = mrXAi;
+		this.detectiveAi = detectiveAi;
+	}
+
+	/**
+	 * Plays games {@code 0} to {@code games - 1}.
+	 *
+	 * @param games the number of games
+	 * @param threads the number of games to play at once
+	 * @return the results
+	 * @throws IllegalStateException if a game fails, e.g. an Ai picks a move that isn't available
+	 * @throws InterruptedException if interrupted while waiting for the games
+	 */
+	@Nonnull public BatchResult run(int games, int threads) throws InterruptedException {
+		if (games < 0) throw new IllegalArgumentException("Negative game count: " + games);
+		if (threads < 1) throw new IllegalArgumentException("Need at least one thread, got " + threads);
+		CreatedAis created = new CreatedAis();
+		ThreadLocal<Ai[]> ais = ThreadLocal.withInitial(() -> created.add(mrXAi.get(), detectiveAi.get()));
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		long start = System.nanoTime();
+		try {
+			List<Future<GameRecord>> futures = new ArrayList<>(games);
+			for (int i = 0; i < games; i++) {
+				int seed = i;
+				futures.add(executor.submit(() -> play(seed, ais.get()[0], ais.get()[1])));
+			}
+			List<GameRecord> records = new ArrayList<>(games);
+			for (Future<GameRecord> future : futures) records.add(future.get());
+			return summarise(records, (System.nanoTime() - start) / 1_000_000);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Game failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+			created.terminate();
+		}
+	}
+
+	/**
+	 * @param seed the game number
+	 * @return the players of the game, with seeded locations in place of {@link #RANDOM}
+	 */
+	@Nonnull public ImmutableList<Player> startPositions(int seed) {
+		Set<Integer> taken = new HashSet<>();
+		for (Player detective : detectives) if (detective.location() != RANDOM) taken.add(detective.location());
+		var free = ScotlandYard.generateDetectiveLocations(seed, ScotlandYard.DETECTIVE_LOCATIONS.size())
+				.stream().filter(location -> !taken.contains(location)).iterator();
+		var players = ImmutableList.<Player>builder();
+		players.add(mrX.location() == RANDOM ? mrX.at(ScotlandYard.generateMrXLocation(seed)) : mrX);
+		for (Player detective : detectives)
+			players.add(detective.location() == RANDOM ? detective.at(free.next()) : detective);
+		return players.build();
+	}
+
+	GameRecord play(int seed, Ai mrXAi, Ai detectiveAi) {
+		return play(seed, mrXAi, detectiveAi, new AtomicBoolean(false));
+	}
+
+	// passes terminate to the Ais and gives up on the game with a CancellationException once set
+	GameRecord play(int seed, Ai mrXAi, Ai detectiveAi, AtomicBoolean terminate) {
+		var players = startPositions(seed);
+		GameState state = factory.build(setup, players.get(0), players.subList(1, players.size()));
+		Samples mrXTimes = new Samples(), detectiveTimes = new Samples();
+		int moves = 0;
+		while (state.getWinner().isEmpty()) {
+			if (terminate.get()) throw new CancellationException("Game " + seed + " terminated");
+			var available = state.getAvailableMoves();
+			boolean mrXTurn = available.iterator().next().commencedBy().isMrX();
+			Ai ai = mrXTurn ? mrXAi : detectiveAi;
+			long before = System.nanoTime();
+			Move move = ai.pickMove(state, terminate);
+			long micros = (System.nanoTime() - before) / 1000;
+			if (!available.contains(move))
+				throw new IllegalStateException("Ai(" + ai.name() + ") selected an invalid move in game "
+						+ seed + ", got: " + move + ", was expecting one of " + available);
+			(mrXTurn ? mrXTimes : detectiveTimes).add(micros);
+			state = state.advance(move);
+			moves++;
+		}
+		return new GameRecord(state.getWinner().contains(Piece.MrX.MRX),
+				state.getMrXTravelLog().size(), moves, mrXTimes, detectiveTimes);
+	}
+
+	private static BatchResult summarise(List<GameRecord> records, long elapsedMillis) {
+		int mrXWins = 0;
+		Samples rounds = new Samples(), moves = new Samples();
+		Samples mrXTimes = new Samples(), detectiveTimes = new Samples();
+		for (GameRecord record : records) {
+			if (record.mrXWon) mrXWins++;
+			rounds.add(record.rounds);
+			moves.add(record.moves);
+			mrXTimes.addAll(record.mrXTimes);
+			detectiveTimes.addAll(record.detectiveTimes);
+		}
+		return new BatchResult(mrXWins, records.size() - mrXWins,
+				rounds.summary(), moves.summary(), mrXTimes.summary(), detectiveTimes.summary(),
+				elapsedMillis);
+	}
+
+	static final class GameRecord {
+		final boolean mrXWon;
+		final int rounds, moves;
+		final Samples mrXTimes, detectiveTimes;
+
+		GameRecord(boolean mrXWon, int rounds, int moves, Samples mrXTimes, Samples detectiveTimes) {
+			this.mrXWon = mrXWon;
+			this.rounds = rounds;
+			this.moves = moves;
+			this.mrXTimes = mrXTimes;
+			this.detectiveTimes = detectiveTimes;
+		}
+	}
+
+	private static final class Samples {
+		long[] values = new long[32];
+		int size;
+
+		void add(long value) {
+			if (size == values.length) values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
+		}
+
+		void addAll(Samples samples) { for (int i = 0; i < samples.size; i++) add(samples.values[i]); }
+
+		BatchResult.Summary summary() { return new BatchResult.Summary(values, size); }
+	}
+
+	// every Ai handed out to a pool thread, so they can all be told when the batch is over
+	static final class CreatedAis {
+		final ConcurrentLinkedQueue<Ai> ais = new ConcurrentLinkedQueue<>();
+
+		Ai[] add(Ai first, Ai second) {
+			first.onStart();
+			second.onStart();
+			ais.add(first);
+			ais.add(second);
+			return new Ai[]{first, second};
+		}
+
+		void terminate() { ais.forEach(Ai::onTerminate); }
+	}
+
+	/**
+	 * Picks a random available move. Public with a public constructor and listed in
+	 * {@code META-INF/services} so {@link uk.ac.bris.cs.scotlandyard.ResourceManager#scanAis()}
+	 * finds it; it is a baseline for batches and tournaments.
+	 */
+	public static final class RandomAi implements Ai {
+		private final Random random = new Random();
+
+		@Nonnull @Override public String name() { return "Random"; }
+
+		@Nonnull @Override public Move pickMove(@Nonnull Board board, @Nonnull AtomicBoolean terminate) {
+			var moves = board.getAvailableMoves().asList();
+			return moves.get(random.nextInt(moves.size()));
+		}
+	}
+
+	/**
+	 * Plays a batch on the standard map with default tickets and prints the results.
+	 * <br>
+	 * Usage: {@code HeadlessRunner [games] [threads] [mrX Ai class] [detective Ai class]}; the
+	 * Ais default to one picking random moves.
+	 *
+	 * @param args see above
+	 * @throws IOException if the standard graph can't be read
+	 * @throws InterruptedException if interrupted while waiting for the games
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		Supplier<? extends Ai> mrXAi = args.length > 2 ? aiOf(args[2]) : RandomAi::new;
+		Supplier<? extends Ai> detectiveAi = args.length > 3 ? aiOf(args[3]) : RandomAi::new;
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		var detectives = ScotlandYard.DETECTIVES.stream()
+				.map(piece -> new Player(piece, ScotlandYard.defaultDetectiveTickets(), RANDOM))
+				.collect(ImmutableList.toImmutableList());
+		var runner = new HeadlessRunner(new MyGameStateFactory(), setup,
+				new Player(Piece.MrX.MRX, ScotlandYard.defaultMrXTickets(), RANDOM), detectives,
+				mrXAi, detectiveAi);
+		System.out.println(runner.run(games, threads));
+	}
+
+	// like ResourceManager.instantiateAi, which would drag in JavaFX
+	private static Supplier<Ai> aiOf(String className) {
+		try {
+			return aiOf(Class.forName(className).asSubclass(Ai.class));
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IllegalArgumentException("No Ai class " + className, e);
+		}
+	}
+
+	static Supplier<Ai> aiOf(Class<? extends Ai> clazz) {
+		return () -> {
+			try {
+				return clazz.getConstructor().newInstance();
+			} catch (ReflectiveOperationException e) {
+				throw new RuntimeException("Unable to create Ai instance of class " + clazz, e);
+			}
+		};
+	}
+}
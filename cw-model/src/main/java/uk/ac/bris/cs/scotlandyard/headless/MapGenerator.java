@@ -0,0 +1,230 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * Generates Scotland Yard style maps of any size, for seeing how the model and Ais scale past
+ * the 199 nodes of the standard map.
+ * <br>
+ * Nodes {@code 1..n} sit on a jittered grid, and the layers are sized like the standard map's:
+ * <ul>
+ *     <li>taxi: a random spanning tree of the grid plus extra grid and diagonal edges, about 1.6
+ *     edges per node, so the map is always connected by taxi</li>
+ *     <li>bus: one stop per 2x2 block, about a quarter of the nodes, linked to the stops of the
+ *     neighbouring blocks</li>
+ *     <li>underground: one station per 4x4 block, nearly always also a bus stop, linked to the
+ *     neighbouring stations</li>
+ *     <li>ferry: a river every 40 rows with a pier every 8 columns, each linked to the next</li>
+ * </ul>
+ * {@link #graph()} is in the format {@link ScotlandYard#readGraph(String)} reads and
+ * {@link #positions()} in the format of {@code pos.txt}. A seed always gives the same map.
+ */
+public final class MapGenerator {
+
+	private static final int SPACING = 150, JITTER = 40, MARGIN = 60;
+	private static final double EXTRA_TAXI = 0.4, DIAGONAL_TAXI = 0.12;
+	private static final double BUS = 0.85, DIAGONAL_BUS = 0.25, UNDERGROUND = 0.7;
+	private static final int RIVER_ROWS = 40, PIER_COLUMNS = 8;
+
+	private final int nodes, width, height;
+	private final long seed;
+	private final Random random;
+	private final StringBuilder edges = new StringBuilder();
+	private int edgeCount;
+
+	/**
+	 * @param nodes the number of nodes, at least 2
+	 * @param seed the random seed
+	 */
+	public MapGenerator(int nodes, long seed) {
+		if (nodes < 2) throw new IllegalArgumentException("Need at least 2 nodes, got " + nodes);
+		this.nodes = nodes;
+		// a 4:3 landscape map like the standard one
+		this.width = (int) Math.ceil(Math.sqrt(nodes * 4 / 3.0));
+		this.height = (nodes + width - 1) / width;
+		this.seed = seed;
+		this.random = new Random(seed);
+		taxis();
+		buses();
+		undergrounds();
+		ferries();
+	}
+
+	/**
+	 * @return the number of nodes
+	 */
+	public int nodes() { return nodes; }
+
+	/**
+	 * @return the number of edge lines in {@link #graph()}, one per transport
+	 */
+	public int edges() { return edgeCount; }
+
+	/**
+	 * @return the graph in the format of {@code graph.txt}
+	 */
+	@Nonnull public String graph() {
+		var graph = new StringBuilder(edges.length() + 8 * nodes);
+		graph.append(nodes).append(' ').append(edgeCount).append('\n');
+		for (int node = 1; node <= nodes; node++) graph.append(node).append('\n');
+		return graph.append(edges).toString();
+	}
+
+	/**
+	 * @return the pixel position of every node in the format of {@code pos.txt}; the same seed
+	 * always gives the same positions
+	 */
+	@Nonnull public String positions() {
+		var jitter = new Random(seed);
+		var positions = new StringBuilder(16 * nodes);
+		positions.append(nodes).append('\n');
+		for (int node = 1; node <= nodes; node++) {
+			int x = MARGIN + column(node) * SPACING + jitter.nextInt(2 * JITTER + 1) - JITTER;
+			int y = MARGIN + row(node) * SPACING + jitter.nextInt(2 * JITTER + 1) - JITTER;
+			positions.append(node).append(' ').append(x).append(' ').append(y).append('\n');
+		}
+		return positions.toString();
+	}
+
+	/**
+	 * Writes {@code graph.txt} and {@code pos.txt}.
+	 *
+	 * @param directory the directory to write to, created if missing
+	 * @throws IOException if the files can't be written
+	 */
+	public void write(@Nonnull Path directory) throws IOException {
+		Files.createDirectories(directory);
+		Files.writeString(directory.resolve("graph.txt"), graph(), StandardCharsets.UTF_8);
+		Files.writeString(directory.resolve("pos.txt"), positions(), StandardCharsets.UTF_8);
+	}
+
+	private int node(int column, int row) {
+		if (column < 0 || column >= width || row < 0 || row >= height) return 0;
+		int node = row * width + column + 1;
+		return node <= nodes ? node : 0;
+	}
+
+	private int column(int node) { return (node - 1) % width; }
+
+	private int row(int node) { return (node - 1) / width; }
+
+	private void edge(int a, int b, Transport transport) {
+		String name = transport.name();
+		edges.append(a).append(' ').append(b).append(' ')
+				.append(name.charAt(0)).append(name.substring(1).toLowerCase(Locale.ENGLISH)).append('\n');
+		edgeCount++;
+	}
+
+	private void taxis() {
+		// randomised Kruskal over the grid for the spanning tree
+		int[] parent = new int[nodes + 1];
+		for (int i = 0; i <= nodes; i++) parent[i] = i;
+		long[] candidates = new long[2 * nodes];
+		int count = 0;
+		for (int node = 1; node <= nodes; node++) {
+			int right = node(column(node) + 1, row(node)), down = node(column(node), row(node) + 1);
+			if (right != 0) candidates[count++] = (long) node << 32 | right;
+			if (down != 0) candidates[count++] = (long) node << 32 | down;
+		}
+		for (int i = count - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			long swap = candidates[i];
+			candidates[i] = candidates[j];
+			candidates[j] = swap;
+		}
+		for (int i = 0; i < count; i++) {
+			int a = (int) (candidates[i] >>> 32), b = (int) candidates[i];
+			int rootA = find(parent, a), rootB = find(parent, b);
+			if (rootA != rootB) parent[rootA] = rootB;
+			else if (random.nextDouble() >= EXTRA_TAXI) continue;
+			edge(a, b, Transport.TAXI);
+		}
+		for (int node = 1; node <= nodes; node++) {
+			int column = column(node), row = row(node);
+			for (int dx = -1; dx <= 1; dx += 2) {
+				int diagonal = node(column + dx, row + 1);
+				if (diagonal != 0 && random.nextDouble() < DIAGONAL_TAXI) edge(node, diagonal, Transport.TAXI);
+			}
+		}
+	}
+
+	private static int find(int[] parent, int node) {
+		while (parent[node] != node) node = parent[node] = parent[parent[node]];
+		return node;
+	}
+
+	// the node picked as the stop of a block, 0 if the block is empty
+	private int stop(int blockColumn, int blockRow, int size) {
+		int column = blockColumn * size, row = blockRow * size;
+		// the same odd cell in every block keeps stops spread out and puts underground stations
+		// on bus stops
+		int offset = size / 2 | 1;
+		int node = node(column + offset, row + offset);
+		return node != 0 ? node : node(column, row);
+	}
+
+	private void blocks(int size, Transport transport, double straight, double diagonal) {
+		int columns = (width + size - 1) / size, rows = (height + size - 1) / size;
+		for (int row = 0; row < rows; row++)
+			for (int column = 0; column < columns; column++) {
+				int stop = stop(column, row, size);
+				if (stop == 0) continue;
+				link(stop, column + 1 < columns ? stop(column + 1, row, size) : 0, transport, straight);
+				link(stop, row + 1 < rows ? stop(column, row + 1, size) : 0, transport, straight);
+				if (diagonal > 0 && row + 1 < rows) {
+					if (column + 1 < columns) link(stop, stop(column + 1, row + 1, size), transport, diagonal);
+					if (column > 0) link(stop, stop(column - 1, row + 1, size), transport, diagonal);
+				}
+			}
+	}
+
+	private void link(int a, int b, Transport transport, double probability) {
+		if (b != 0 && b != a && random.nextDouble() < probability) edge(a, b, transport);
+	}
+
+	private void buses() { blocks(2, Transport.BUS, BUS, DIAGONAL_BUS); }
+
+	private void undergrounds() { blocks(4, Transport.UNDERGROUND, UNDERGROUND, 0); }
+
+	private void ferries() {
+		// small maps still get one river, through the middle
+		for (int row = Math.min(RIVER_ROWS / 2, height / 2); row < height; row += RIVER_ROWS) {
+			int previous = 0;
+			for (int column = 0; column < width; column += PIER_COLUMNS) {
+				int pier = node(column, row);
+				if (pier == 0) break;
+				if (previous != 0) edge(previous, pier, Transport.FERRY);
+				previous = pier;
+			}
+		}
+	}
+
+	/**
+	 * Writes a generated map.
+	 * <br>
+	 * Usage: {@code MapGenerator <nodes> [seed] [directory]}
+	 *
+	 * @param args see above
+	 * @throws IOException if the files can't be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) throw new IllegalArgumentException("Usage: MapGenerator <nodes> [seed] [directory]");
+		int nodes = Integer.parseInt(args[0]);
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		Path directory = Paths.get(args.length > 2 ? args[2] : "map-" + nodes);
+		var generator = new MapGenerator(nodes, seed);
+		generator.write(directory);
+		System.out.printf("Wrote %d nodes and %d edges to %s%n", nodes, generator.edges(), directory);
+	}
+}
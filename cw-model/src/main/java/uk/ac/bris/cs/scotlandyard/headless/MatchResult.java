@@ -0,0 +1,118 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The running result of a match between two Ais, played in pairs of games with the same start
+ * positions and the sides swapped. From the first Ai's point of view a pair scores 1 for two
+ * wins, 0.5 for one and 0 for none.
+ */
+public final class MatchResult {
+
+	private static final double Z_95 = 1.959964;
+
+	@Nonnull public final String first, second;
+	// pairs that scored 0, 0.5 and 1 for the first Ai
+	private final int[] pairScores = new int[3];
+	private int firstWinsAsMrX, secondWinsAsMrX;
+	private Sprt.Verdict verdict = Sprt.Verdict.CONTINUE;
+
+	/**
+	 * @param first the name of the first Ai
+	 * @param second the name of the second Ai
+	 */
+	public MatchResult(@Nonnull String first, @Nonnull String second) {
+		this.first = first;
+		this.second = second;
+	}
+
+	/**
+	 * Records a game pair.
+	 *
+	 * @param firstWonAsMrX whether the first Ai won the game it played as Mr X
+	 * @param secondWonAsMrX whether the second Ai won the game it played as Mr X
+	 */
+	public void add(boolean firstWonAsMrX, boolean secondWonAsMrX) {
+		if (firstWonAsMrX) firstWinsAsMrX++;
+		if (secondWonAsMrX) secondWinsAsMrX++;
+		pairScores[(firstWonAsMrX ? 1 : 0) + (secondWonAsMrX ? 0 : 1)]++;
+	}
+
+	void verdict(@Nonnull Sprt.Verdict verdict) { this.verdict = verdict; }
+
+	/**
+	 * @return the SPRT verdict, {@link Sprt.Verdict#CONTINUE} if there was no test or it ran out
+	 * of games
+	 */
+	@Nonnull public Sprt.Verdict verdict() { return verdict; }
+
+	/**
+	 * @return the number of game pairs played
+	 */
+	public int pairs() { return pairScores[0] + pairScores[1] + pairScores[2]; }
+
+	/**
+	 * @return the games the first Ai won as Mr X
+	 */
+	public int firstWinsAsMrX() { return firstWinsAsMrX; }
+
+	/**
+	 * @return the games the second Ai won as Mr X
+	 */
+	public int secondWinsAsMrX() { return secondWinsAsMrX; }
+
+	/**
+	 * @return the first Ai's mean score per game, 0 to 1
+	 */
+	public double score() {
+		int pairs = pairs();
+		return pairs == 0 ? 0.5 : (pairScores[1] * 0.5 + pairScores[2]) / pairs;
+	}
+
+	/**
+	 * @return the variance of the score of a pair
+	 */
+	public double variance() {
+		int pairs = pairs();
+		if (pairs == 0) return 0;
+		double mean = score();
+		return (pairScores[0] * mean * mean
+				+ pairScores[1] * (0.5 - mean) * (0.5 - mean)
+				+ pairScores[2] * (1 - mean) * (1 - mean)) / pairs;
+	}
+
+	/**
+	 * @return the first Ai's Elo advantage over the second
+	 */
+	public double elo() { return eloOf(score()); }
+
+	/**
+	 * @return the half width of the 95% confidence interval of {@link #elo()}, infinite when the
+	 * score is 0 or 1 at either end of it
+	 */
+	public double eloError() {
+		int pairs = pairs();
+		if (pairs == 0) return Double.POSITIVE_INFINITY;
+		double margin = Z_95 * Math.sqrt(variance() / pairs);
+		double low = eloOf(score() - margin), high = eloOf(score() + margin);
+		return (high - low) / 2;
+	}
+
+	/**
+	 * @param elo an Elo difference
+	 * @return the expected score of the stronger side
+	 */
+	public static double expectedScore(double elo) { return 1 / (1 + Math.pow(10, -elo / 400)); }
+
+	private static double eloOf(double score) {
+		if (score <= 0) return Double.NEGATIVE_INFINITY;
+		if (score >= 1) return Double.POSITIVE_INFINITY;
+		return -400 * Math.log10(1 / score - 1);
+	}
+
+	@Override public String toString() {
+		return String.format("%s vs %s: %d pairs, score %.3f, Elo %+.1f +/- %.1f, as Mr X %d-%d%s",
+				first, second, pairs(), score(), elo(), eloError(), firstWinsAsMrX, secondWinsAsMrX,
+				verdict == Sprt.Verdict.CONTINUE ? "" : ", SPRT " + verdict);
+	}
+}
@@ -0,0 +1,234 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.BitboardGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+
+/**
+ * Counts the leaves of the game tree to a fixed depth, as chess engines do to check move
+ * generation: any two correct implementations give the same counts, and the time taken is a
+ * move generation benchmark. A move is one ply, a double move included; games that end early
+ * contribute no leaves.
+ * <br>
+ * {@link #diff(GameState, GameState, int)} walks two implementations side by side and returns
+ * the first position where they disagree, which is where to start looking when counts differ.
+ */
+public final class Perft {
+
+	// below this depth a subtree is counted on the current thread
+	private static final int FORK_DEPTH = 2;
+	private static final Comparator<Move> MOVE_ORDER = Comparator.comparing(Move::toString);
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * @param parallelism the number of threads to count with
+	 */
+	public Perft(int parallelism) { this.pool = new ForkJoinPool(parallelism); }
+
+	/**
+	 * Where two implementations first disagree
+	 */
+	public static final class Divergence {
+		/**
+		 * The moves from the start to the diverging position
+		 */
+		@Nonnull public final ImmutableList<Move> path;
+		/**
+		 * Moves only the first implementation generates
+		 */
+		@Nonnull public final ImmutableSet<Move> onlyFirst;
+		/**
+		 * Moves only the second implementation generates
+		 */
+		@Nonnull public final ImmutableSet<Move> onlySecond;
+		/**
+		 * The winners of both, which differ if the moves don't
+		 */
+		@Nonnull public final ImmutableSet<Piece> firstWinner, secondWinner;
+
+		Divergence(List<Move> path, GameState first, GameState second) {
+			this.path = ImmutableList.copyOf(path);
+			this.onlyFirst = Sets.difference(first.getAvailableMoves(), second.getAvailableMoves()).immutableCopy();
+			this.onlySecond = Sets.difference(second.getAvailableMoves(), first.getAvailableMoves()).immutableCopy();
+			this.firstWinner = first.getWinner();
+			this.secondWinner = second.getWinner();
+		}
+
+		@Override public String toString() {
+			return String.format("Diverged after %s%n  only first:  %s%n  only second: %s%n  winners: %s vs %s",
+					path, onlyFirst, onlySecond, firstWinner, secondWinner);
+		}
+	}
+
+	/**
+	 * @param state the root
+	 * @param depth the number of plies
+	 * @return the number of positions exactly {@code depth} plies below the root
+	 */
+	public long count(@Nonnull GameState state, int depth) {
+		if (depth < 0) throw new IllegalArgumentException("Negative depth: " + depth);
+		return pool.invoke(new Count(state, depth));
+	}
+
+	/**
+	 * @param state the root
+	 * @param depth the number of plies, at least 1
+	 * @return {@link #count(GameState, int)} split by root move, in a stable order
+	 */
+	@Nonnull public ImmutableMap<Move, Long> split(@Nonnull GameState state, int depth) {
+		if (depth < 1) throw new IllegalArgumentException("Depth must be at least 1: " + depth);
+		var moves = state.getAvailableMoves().stream().sorted(MOVE_ORDER)
+				.collect(ImmutableList.toImmutableList());
+		List<Count> counts = new ArrayList<>(moves.size());
+		for (Move move : moves) counts.add(new Count(state.advance(move), depth - 1));
+		counts.forEach(pool::execute);
+		var builder = ImmutableMap.<Move, Long>builder();
+		for (int i = 0; i < moves.size(); i++) builder.put(moves.get(i), counts.get(i).join());
+		return builder.build();
+	}
+
+	/**
+	 * Walks two implementations from equal roots and compares the available moves and winner of
+	 * every position on the way, depth first.
+	 *
+	 * @param first the root built by one implementation
+	 * @param second the same root built by the other
+	 * @param depth the number of plies
+	 * @return the first position where they disagree, if any
+	 */
+	@Nonnull public static Optional<Divergence> diff(@Nonnull GameState first,
+	                                                 @Nonnull GameState second, int depth) {
+		return diff(first, second, depth, new ArrayList<>());
+	}
+
+	private static Optional<Divergence> diff(GameState first, GameState second, int depth, List<Move> path) {
+		if (!first.getAvailableMoves().equals(second.getAvailableMoves())
+				|| !first.getWinner().equals(second.getWinner()))
+			return Optional.of(new Divergence(path, first, second));
+		if (depth == 0) return Optional.empty();
+		for (Move move : first.getAvailableMoves().stream().sorted(MOVE_ORDER)
+				.collect(ImmutableList.toImmutableList())) {
+			path.add(move);
+			var divergence = diff(first.advance(move), second.advance(move), depth - 1, path);
+			if (divergence.isPresent()) return divergence;
+			path.remove(path.size() - 1);
+		}
+		return Optional.empty();
+	}
+
+	private static final class Count extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+
+		private final transient GameState state;
+		private final int depth;
+
+		Count(GameState state, int depth) {
+			this.state = state;
+			this.depth = depth;
+		}
+
+		@Override protected Long compute() {
+			if (depth <= FORK_DEPTH) return countHere(state, depth);
+			List<Count> children = new ArrayList<>();
+			for (Move move : state.getAvailableMoves()) children.add(new Count(state.advance(move), depth - 1));
+			invokeAll(children);
+			long total = 0;
+			for (Count child : children) total += child.join();
+			return total;
+		}
+
+		private static long countHere(GameState state, int depth) {
+			if (depth == 0) return 1;
+			// the moves of a finished game are empty, so it adds no leaves
+			if (depth == 1) return state.getAvailableMoves().size();
+			long total = 0;
+			for (Move move : state.getAvailableMoves()) total += countHere(state.advance(move), depth - 1);
+			return total;
+		}
+	}
+
+	/**
+	 * @param factory the implementation
+	 * @param setup the game setup
+	 * @param detectives the number of detectives, 1 to 5
+	 * @param seed the seed for {@link ScotlandYard#generateMrXLocation(int)} and
+	 * {@link ScotlandYard#generateDetectiveLocations(int, int)}
+	 * @return a start position with default tickets
+	 */
+	@Nonnull public static GameState start(@Nonnull Factory<GameState> factory,
+	                                       @Nonnull GameSetup setup, int detectives, int seed) {
+		var locations = ScotlandYard.generateDetectiveLocations(seed, detectives);
+		var players = ImmutableList.<Player>builder();
+		for (int i = 0; i < detectives; i++)
+			players.add(new Player(ScotlandYard.DETECTIVES.asList().get(i),
+					ScotlandYard.defaultDetectiveTickets(), locations.get(i)));
+		return factory.build(setup,
+				new Player(Piece.MrX.MRX, ScotlandYard.defaultMrXTickets(), ScotlandYard.generateMrXLocation(seed)),
+				players.build());
+	}
+
+	/**
+	 * Counts from seeded standard start positions with five detectives, or compares
+	 * {@link MyGameStateFactory} with {@link BitboardGameStateFactory}.
+	 * <br>
+	 * Usage: {@code Perft [depth] [seeds] [count|split|diff]}
+	 *
+	 * @param args see above
+	 * @throws IOException if the standard graph can't be read
+	 */
+	public static void main(String[] args) throws IOException {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		int seeds = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		String mode = args.length > 2 ? args[2] : "count";
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		var perft = new Perft(Runtime.getRuntime().availableProcessors());
+		for (int seed = 0; seed < seeds; seed++) {
+			GameState state = start(new MyGameStateFactory(), setup, ScotlandYard.DETECTIVES.size(), seed);
+			long start = System.nanoTime();
+			switch (mode) {
+				case "count": {
+					long nodes = perft.count(state, depth);
+					double seconds = (System.nanoTime() - start) / 1e9;
+					System.out.printf("seed %d perft(%d) = %d in %.3f s (%.0f leaves/s)%n",
+							seed, depth, nodes, seconds, nodes / seconds);
+					break;
+				}
+				case "split":
+					System.out.printf("seed %d%n", seed);
+					perft.split(state, depth).forEach((move, nodes) -> System.out.printf("  %s: %d%n", move, nodes));
+					break;
+				case "diff": {
+					GameState other = start(new BitboardGameStateFactory(), setup, ScotlandYard.DETECTIVES.size(), seed);
+					var divergence = diff(state, other, depth);
+					System.out.printf("seed %d: %s%n", seed, divergence.map(Divergence::toString).orElse("identical"));
+					break;
+				}
+				default:
+					throw new IllegalArgumentException("Unknown mode " + mode + ", expected count, split or diff");
+			}
+		}
+		perft.pool.shutdown();
+	}
+}
@@ -0,0 +1,44 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The outcome of a {@link Tournament#roundRobin(java.util.List, int)}: the matches played and
+ * the ones that failed.
+ */
+public final class RoundRobinResult {
+
+	/**
+	 * A match that failed, e.g. because one of the Ais can only play one side
+	 */
+	public static final class Skipped {
+		/**
+		 * The indices of the two Ais in the round robin's list
+		 */
+		public final int first, second;
+		@Nonnull public final Throwable cause;
+
+		Skipped(int first, int second, @Nonnull Throwable cause) {
+			this.first = first;
+			this.second = second;
+			this.cause = cause;
+		}
+
+		@Override public String toString() {
+			return String.format("Skipped match %d vs %d: %s", first, second, cause.getMessage());
+		}
+	}
+
+	/**
+	 * The results of every match played, the earlier Ai of the list first
+	 */
+	@Nonnull public final ImmutableList<MatchResult> results;
+	@Nonnull public final ImmutableList<Skipped> skipped;
+
+	RoundRobinResult(@Nonnull ImmutableList<MatchResult> results, @Nonnull ImmutableList<Skipped> skipped) {
+		this.results = results;
+		this.skipped = skipped;
+	}
+}
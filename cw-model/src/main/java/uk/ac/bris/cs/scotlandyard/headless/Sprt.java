@@ -0,0 +1,86 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A sequential probability ratio test on the Elo difference of a match, deciding between
+ * H0: {@code elo <= elo0} and H1: {@code elo >= elo1} with error rates {@code alpha} and
+ * {@code beta}.
+ * <br>
+ * Uses the normal approximation of the generalised SPRT, with the variance taken from the
+ * observed pair scores, so it works on game pairs that score 0, 0.5 or 1.
+ */
+public final class Sprt {
+
+	/**
+	 * The state of the test
+	 */
+	public enum Verdict {
+		/**
+		 * Not decided yet, keep playing
+		 */
+		CONTINUE,
+		/**
+		 * H0 accepted, the first Ai is not stronger by elo1
+		 */
+		H0,
+		/**
+		 * H1 accepted, the first Ai is stronger by at least elo1
+		 */
+		H1
+	}
+
+	public final double elo0, elo1, alpha, beta;
+
+	/**
+	 * @param elo0 the Elo difference of H0
+	 * @param elo1 the Elo difference of H1, greater than elo0
+	 * @param alpha the chance of accepting H1 when H0 holds
+	 * @param beta the chance of accepting H0 when H1 holds
+	 */
+	public Sprt(double elo0, double elo1, double alpha, double beta) {
+		if (!(elo1 > elo0)) throw new IllegalArgumentException("elo1 must be greater than elo0");
+		if (!(alpha > 0 && alpha < 1 && beta > 0 && beta < 1))
+			throw new IllegalArgumentException("alpha and beta must be between 0 and 1");
+		this.elo0 = elo0;
+		this.elo1 = elo1;
+		this.alpha = alpha;
+		this.beta = beta;
+	}
+
+	/**
+	 * @return the log likelihood ratio at which H0 is accepted
+	 */
+	public double lowerBound() { return Math.log(beta / (1 - alpha)); }
+
+	/**
+	 * @return the log likelihood ratio at which H1 is accepted
+	 */
+	public double upperBound() { return Math.log((1 - beta) / alpha); }
+
+	/**
+	 * @param result the match so far
+	 * @return the log likelihood ratio of H1 against H0
+	 */
+	public double llr(@Nonnull MatchResult result) {
+		double variance = result.variance();
+		if (result.pairs() < 2 || variance == 0) return 0;
+		double s0 = MatchResult.expectedScore(elo0), s1 = MatchResult.expectedScore(elo1);
+		return result.pairs() * (s1 - s0) * (2 * result.score() - s0 - s1) / (2 * variance);
+	}
+
+	/**
+	 * @param result the match so far
+	 * @return whether to keep playing or which hypothesis was accepted
+	 */
+	@Nonnull public Verdict verdict(@Nonnull MatchResult result) {
+		double llr = llr(result);
+		if (llr >= upperBound()) return Verdict.H1;
+		if (llr <= lowerBound()) return Verdict.H0;
+		return Verdict.CONTINUE;
+	}
+
+	@Override public String toString() {
+		return String.format("SPRT[elo0=%.1f, elo1=%.1f, alpha=%.3f, beta=%.3f]", elo0, elo1, alpha, beta);
+	}
+}
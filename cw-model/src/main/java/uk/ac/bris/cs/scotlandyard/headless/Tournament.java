@@ -0,0 +1,248 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+
+/**
+ * Plays Ais against each other to find out which is stronger.
+ * <br>
+ * A match is played in pairs of games: both games of pair {@code n} start from the positions
+ * {@link HeadlessRunner#startPositions(int)} gives for seed {@code n}, and the Ais swap sides
+ * between them, so neither gains from a lucky start. Pairs run in parallel; with an {@link Sprt}
+ * the match stops as soon as the test is decided instead of playing every pair.
+ */
+public final class Tournament {
+
+	private final Factory<GameState> factory;
+	private final GameSetup setup;
+	private final Player mrX;
+	private final ImmutableList<Player> detectives;
+	private final int threads;
+
+	/**
+	 * @param factory the game state factory
+	 * @param setup the game setup
+	 * @param mrX the Mr X template, see {@link HeadlessRunner}
+	 * @param detectives the detective templates, see {@link HeadlessRunner}
+	 * @param threads the number of games to play at once
+	 */
+	public Tournament(@Nonnull Factory<GameState> factory,
+	                  @Nonnull GameSetup setup,
+	                  @Nonnull Player mrX,
+	                  @Nonnull ImmutableList<Player> detectives,
+	                  int threads) {
+		if (threads < 1) throw new IllegalArgumentException("Need at least one thread, got " + threads);
+		this.factory = factory;
+		this.setup = setup;
+		this.mrX = mrX;
+		this.detectives = detectives;
+		this.threads = threads;
+	}
+
+	/**
+	 * Plays a head to head match.
+	 *
+	 * @param first creates the first Ai, called once per pool thread
+	 * @param second creates the second Ai, called once per pool thread
+	 * @param maxPairs the most game pairs to play, at least one
+	 * @param sprt the test to stop early on, or null to play every pair
+	 * @return the result from the first Ai's point of view
+	 * @throws IllegalStateException if a game fails, e.g. an Ai can't play one of the sides
+	 * @throws InterruptedException if interrupted while waiting for the games
+	 */
+	@Nonnull public MatchResult match(@Nonnull Supplier<? extends Ai> first,
+	                                  @Nonnull Supplier<? extends Ai> second,
+	                                  int maxPairs, @Nullable Sprt sprt) throws InterruptedException {
+		if (maxPairs < 1) throw new IllegalArgumentException("Need at least one pair, got " + maxPairs);
+		var created = new HeadlessRunner.CreatedAis();
+		ThreadLocal<Ai[]> ais = ThreadLocal.withInitial(() -> created.add(first.get(), second.get()));
+		var runner = new HeadlessRunner(factory, setup, mrX, detectives, first, second);
+		// shared by every game, so an early stop reaches the Ais of the games still running
+		var terminate = new AtomicBoolean(false);
+		MatchResult result = null;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CompletionService<PlayedPair> completion = new ExecutorCompletionService<>(executor);
+		try {
+			int submitted = 0;
+			// keep every thread busy without queueing pairs an early stop would throw away
+			for (; submitted < Math.min(maxPairs, threads * 2); submitted++)
+				submitPair(completion, runner, ais, terminate, submitted);
+			for (int done = 0; done < submitted; done++) {
+				PlayedPair pair = completion.take().get();
+				if (result == null) result = new MatchResult(pair.first, pair.second);
+				result.add(pair.firstWonAsMrX, pair.secondWonAsMrX);
+				if (sprt != null && sprt.verdict(result) != Sprt.Verdict.CONTINUE) {
+					result.verdict(sprt.verdict(result));
+					break;
+				}
+				if (submitted < maxPairs) submitPair(completion, runner, ais, terminate, submitted++);
+			}
+			return result;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Game failed", e.getCause());
+		} finally {
+			terminate.set(true);
+			executor.shutdown();
+			// the Ais are only told the match is over once no game is using them
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			created.terminate();
+		}
+	}
+
+	/**
+	 * Plays every Ai against every other. A match that fails, e.g. because one of the Ais can
+	 * only play one side, is left out of the results and returned with its cause instead.
+	 *
+	 * @param ais creates each Ai, called once per pool thread
+	 * @param pairs the game pairs per match
+	 * @return the matches played and the ones skipped
+	 * @throws InterruptedException if interrupted while waiting for the games
+	 */
+	@Nonnull public RoundRobinResult roundRobin(@Nonnull List<Supplier<? extends Ai>> ais,
+	                                            int pairs) throws InterruptedException {
+		var results = ImmutableList.<MatchResult>builder();
+		var skipped = ImmutableList.<RoundRobinResult.Skipped>builder();
+		for (int i = 0; i < ais.size(); i++)
+			for (int j = i + 1; j < ais.size(); j++) {
+				try {
+					results.add(match(ais.get(i), ais.get(j), pairs, null));
+				} catch (IllegalStateException e) {
+					skipped.add(new RoundRobinResult.Skipped(i, j, e.getCause() == null ? e : e.getCause()));
+				}
+			}
+		return new RoundRobinResult(results.build(), skipped.build());
+	}
+
+	/**
+	 * @param names the Ai names
+	 * @param results the results of a {@link #roundRobin(List, int)} between them, see
+	 * {@link RoundRobinResult#results}
+	 * @return each Ai's Elo relative to the field average, by least squares over the matches
+	 */
+	@Nonnull public static double[] ratings(@Nonnull List<String> names,
+	                                        @Nonnull List<MatchResult> results) {
+		// in a full round robin the least squares rating is the mean advantage over the whole
+		// field, the Ai itself included at 0
+		double[] ratings = new double[names.size()];
+		int[] matches = new int[names.size()];
+		for (MatchResult result : results) {
+			double elo = Math.max(-1000, Math.min(1000, result.elo()));
+			int first = names.indexOf(result.first), second = names.indexOf(result.second);
+			ratings[first] += elo;
+			ratings[second] -= elo;
+			matches[first]++;
+			matches[second]++;
+		}
+		for (int i = 0; i < ratings.length; i++) ratings[i] /= matches[i] + 1;
+		return ratings;
+	}
+
+	// the names come from the pool thread's own Ais, which have been started anyway
+	private static final class PlayedPair {
+		final String first, second;
+		final boolean firstWonAsMrX, secondWonAsMrX;
+
+		PlayedPair(Ai[] ais, boolean firstWonAsMrX, boolean secondWonAsMrX) {
+			this.first = ais[0].name();
+			this.second = ais[1].name();
+			this.firstWonAsMrX = firstWonAsMrX;
+			this.secondWonAsMrX = secondWonAsMrX;
+		}
+	}
+
+	private static void submitPair(CompletionService<PlayedPair> completion, HeadlessRunner runner,
+	                               ThreadLocal<Ai[]> ais, AtomicBoolean terminate, int seed) {
+		completion.submit(() -> {
+			// don't create Ais for a pair that was queued before an early stop
+			if (terminate.get()) throw new CancellationException("Pair " + seed + " terminated");
+			Ai[] pair = ais.get();
+			return new PlayedPair(pair,
+					runner.play(seed, pair[0], pair[1], terminate).mrXWon,
+					runner.play(seed, pair[1], pair[0], terminate).mrXWon);
+		});
+	}
+
+	/**
+	 * Finds every Ai listed in {@code META-INF/services} and plays them on the standard map with
+	 * default tickets and seeded start positions.
+	 * <br>
+	 * Usage: {@code Tournament [pairs] [threads] [first Ai name] [second Ai name]}; with two names
+	 * it plays a head to head match stopped by an SPRT of 0 against 50 Elo, otherwise a round
+	 * robin between everything found.
+	 *
+	 * @param args see above
+	 * @throws IOException if the standard graph can't be read
+	 * @throws InterruptedException if interrupted while waiting for the games
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int pairs = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		// like ResourceManager.scanAis, which would drag in JavaFX; the instances made here are
+		// only asked for their names and never started
+		Map<String, Supplier<Ai>> found = new LinkedHashMap<>();
+		ServiceLoader.load(Ai.class).stream().map(ServiceLoader.Provider::type).distinct()
+				.map(HeadlessRunner::aiOf)
+				.forEach(ai -> found.putIfAbsent(ai.get().name(), ai));
+		System.out.println(found.keySet());
+		var detectives = ScotlandYard.DETECTIVES.stream()
+				.map(piece -> new Player(piece, ScotlandYard.defaultDetectiveTickets(), HeadlessRunner.RANDOM))
+				.collect(ImmutableList.toImmutableList());
+		var tournament = new Tournament(new MyGameStateFactory(),
+				new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS),
+				new Player(Piece.MrX.MRX, ScotlandYard.defaultMrXTickets(), HeadlessRunner.RANDOM),
+				detectives, threads);
+
+		if (args.length > 3) {
+			var sprt = new Sprt(0, 50, 0.05, 0.05);
+			System.out.println(sprt);
+			System.out.println(tournament.match(find(found, args[2]), find(found, args[3]), pairs, sprt));
+			return;
+		}
+		List<String> names = new ArrayList<>(found.keySet());
+		var roundRobin = tournament.roundRobin(new ArrayList<>(found.values()), pairs);
+		roundRobin.results.forEach(System.out::println);
+		for (var skipped : roundRobin.skipped)
+			System.err.printf("Skipped %s vs %s: %s%n", names.get(skipped.first), names.get(skipped.second),
+					skipped.cause.getMessage());
+		double[] ratings = ratings(names, roundRobin.results);
+		Integer[] order = new Integer[names.size()];
+		for (int i = 0; i < order.length; i++) order[i] = i;
+		Arrays.sort(order, (a, b) -> Double.compare(ratings[b], ratings[a]));
+		for (int i : order) System.out.printf("%+8.1f  %s%n", ratings[i], names.get(i));
+	}
+
+	private static Supplier<Ai> find(Map<String, Supplier<Ai>> ais, String name) {
+		Supplier<Ai> ai = ais.get(name);
+		if (ai == null) throw new IllegalArgumentException("No Ai named " + name);
+		return ai;
+	}
+}
@@ -0,0 +1,307 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * A {@link GameState} factory that keeps the game in packed primitive form: player locations
+ * and tickets in {@code int[]}s, detective occupancy as a node bitset (see {@link NodeBits}) and
+ * MrX's travel log as packed {@code int}s.
+ * <br>
+ * Behaves exactly like any other {@link Board.GameState} implementation but avoids rebuilding
+ * {@link Player}s and Guava collections on every {@link GameState#advance(Move)}, which makes it
+ * suitable for AI self-play where millions of states are created.
+ */
+public final class BitboardGameStateFactory implements Factory<GameState> {
+
+	private static final Ticket[] TICKETS = Ticket.values();
+	private static final Transport[] TRANSPORTS = Transport.values();
+	private static final int TICKET_COUNT = TICKETS.length;
+	private static final int MRX = 0;
+	private static final int MRX_BIT = 1;
+
+	@Nonnull @Override public GameState build(GameSetup setup,
+	                                          Player mrX,
+	                                          ImmutableList<Player> detectives) {
+		Objects.requireNonNull(setup);
+		Objects.requireNonNull(mrX);
+		Objects.requireNonNull(detectives);
+		if (!mrX.isMrX()) throw new IllegalArgumentException("MrX must be a MrX piece");
+		if (setup.rounds.isEmpty()) throw new IllegalArgumentException("No rounds");
+		if (setup.graph.edges().isEmpty()) throw new IllegalArgumentException("Empty graph");
+
+		int players = detectives.size() + 1;
+		var pieces = new Piece[players];
+		var locations = new int[players];
+		var tickets = new int[players * TICKET_COUNT];
+		int maxNode = CompiledGraph.of(setup).maxNode();
+		var occupied = NodeBits.create(maxNode);
+
+		for (int i = 0; i < players; i++) {
+			Player player = i == MRX ? mrX : Objects.requireNonNull(detectives.get(i - 1));
+			if (!setup.graph.nodes().contains(player.location()))
+				throw new IllegalArgumentException("Location not on graph " + player.location());
+			if (i != MRX) {
+				if (!player.isDetective())
+					throw new IllegalArgumentException("Detective must be a detective piece");
+				if (player.has(Ticket.SECRET) || player.has(Ticket.DOUBLE))
+					throw new IllegalArgumentException(player.piece() + " has MrX only tickets");
+				for (int j = 1; j < i; j++) {
+					if (pieces[j] == player.piece())
+						throw new IllegalArgumentException("Duplicate " + player.piece());
+					if (locations[j] == player.location())
+						throw new IllegalArgumentException("Duplicate location " + player.location());
+				}
+				NodeBits.set(occupied, player.location());
+			}
+			pieces[i] = player.piece();
+			locations[i] = player.location();
+			for (Ticket ticket : TICKETS)
+				tickets[i * TICKET_COUNT + ticket.ordinal()] = player.count(ticket);
+		}
+		return new BitboardGameState(new Game(setup, pieces),
+				locations, tickets, occupied, MRX_BIT, new int[0]);
+	}
+
+	/**
+	 * Everything that stays the same for the whole game; shared by all derived states.
+	 */
+	private static final class Game {
+		final GameSetup setup;
+		final CompiledGraph graph;
+		final Piece[] pieces;
+		final ImmutableSet<Piece> players;
+		final ImmutableSet<Piece> detectives;
+		final int detectiveBits;
+
+		Game(GameSetup setup, Piece[] pieces) {
+			this.setup = setup;
+			this.graph = CompiledGraph.of(setup);
+			this.pieces = pieces;
+			this.players = ImmutableSet.copyOf(pieces);
+			this.detectives = players.stream().filter(Piece::isDetective)
+					.collect(ImmutableSet.toImmutableSet());
+			this.detectiveBits = ((1 << pieces.length) - 1) & ~MRX_BIT;
+		}
+
+		int indexOf(Piece piece) {
+			for (int i = 0; i < pieces.length; i++) if (pieces[i] == piece) return i;
+			return -1;
+		}
+	}
+
+	private static final class BitboardGameState implements GameState {
+		private final Game game;
+		private final int[] locations;
+		private final int[] tickets;
+		private final long[] occupied;
+		private final int remaining;
+		// each entry is (location << 3 | ticket ordinal), location is -1 when hidden
+		private final int[] log;
+
+		// computed on demand, see resolve(); volatile as a state may be read by several threads
+		private volatile ImmutableSet<Move> moves;
+		private volatile ImmutableSet<Piece> winner;
+		private volatile ImmutableList<LogEntry> travelLog;
+
+		private BitboardGameState(Game game,
+		                          int[] locations,
+		                          int[] tickets,
+		                          long[] occupied,
+		                          int remaining,
+		                          int[] log) {
+			this.game = game;
+			this.locations = locations;
+			this.tickets = tickets;
+			this.occupied = occupied;
+			this.remaining = remaining;
+			this.log = log;
+		}
+
+		private int count(int player, Ticket ticket) {
+			return tickets[player * TICKET_COUNT + ticket.ordinal()];
+		}
+
+		private boolean canMove(int player) {
+			var graph = game.graph;
+			int source = locations[player];
+			for (int i = graph.start(source); i < graph.end(source); i++) {
+				if (NodeBits.get(occupied, graph.neighbour(i))) continue;
+				if (player == MRX && count(MRX, Ticket.SECRET) > 0) return true;
+				for (Transport t : TRANSPORTS)
+					if ((graph.transports(i) & CompiledGraph.mask(t)) != 0
+							&& count(player, t.requiredTicket()) > 0) return true;
+			}
+			return false;
+		}
+
+		private void addMoves(ImmutableSet.Builder<Move> builder, int player) {
+			Piece piece = game.pieces[player];
+			int source = locations[player];
+			int secrets = player == MRX ? count(MRX, Ticket.SECRET) : 0;
+			boolean doubles = player == MRX && count(MRX, Ticket.DOUBLE) > 0
+					&& game.setup.rounds.size() - log.length >= 2;
+			var graph = game.graph;
+			for (int i = graph.start(source); i < graph.end(source); i++) {
+				int destination1 = graph.neighbour(i);
+				if (NodeBits.get(occupied, destination1)) continue;
+				for (Transport t : TRANSPORTS) {
+					if ((graph.transports(i) & CompiledGraph.mask(t)) == 0) continue;
+					Ticket ticket1 = t.requiredTicket();
+					if (count(player, ticket1) == 0) continue;
+					builder.add(new SingleMove(piece, source, ticket1, destination1));
+					if (doubles) addDoubleMoves(builder, source, ticket1, destination1);
+				}
+				if (secrets > 0) {
+					builder.add(new SingleMove(piece, source, Ticket.SECRET, destination1));
+					if (doubles) addDoubleMoves(builder, source, Ticket.SECRET, destination1);
+				}
+			}
+		}
+
+		private void addDoubleMoves(ImmutableSet.Builder<Move> builder,
+		                            int source, Ticket ticket1, int destination1) {
+			Piece piece = game.pieces[MRX];
+			int secretsNeeded = ticket1 == Ticket.SECRET ? 2 : 1;
+			var graph = game.graph;
+			for (int i = graph.start(destination1); i < graph.end(destination1); i++) {
+				int destination2 = graph.neighbour(i);
+				if (NodeBits.get(occupied, destination2)) continue;
+				for (Transport t : TRANSPORTS) {
+					if ((graph.transports(i) & CompiledGraph.mask(t)) == 0) continue;
+					Ticket ticket2 = t.requiredTicket();
+					if (count(MRX, ticket2) >= (ticket1 == ticket2 ? 2 : 1))
+						builder.add(new DoubleMove(piece, source,
+								ticket1, destination1, ticket2, destination2));
+				}
+				if (count(MRX, Ticket.SECRET) >= secretsNeeded)
+					builder.add(new DoubleMove(piece, source,
+							ticket1, destination1, Ticket.SECRET, destination2));
+			}
+		}
+
+		private void resolve() {
+			if (winner != null) return;
+			ImmutableSet<Piece> winner = ImmutableSet.of();
+			ImmutableSet<Move> moves = ImmutableSet.of();
+			boolean detectivesStuck = true;
+			for (int i = 1; i < game.pieces.length && detectivesStuck; i++)
+				detectivesStuck = !canMove(i);
+
+			if (NodeBits.get(occupied, locations[MRX])) winner = game.detectives;
+			else if (remaining == MRX_BIT && log.length == game.setup.rounds.size())
+				winner = ImmutableSet.of(game.pieces[MRX]);
+			else if (detectivesStuck) winner = ImmutableSet.of(game.pieces[MRX]);
+			else {
+				var builder = ImmutableSet.<Move>builder();
+				for (int i = 0; i < game.pieces.length; i++)
+					if ((remaining & (1 << i)) != 0) addMoves(builder, i);
+				moves = builder.build();
+				if (remaining == MRX_BIT && moves.isEmpty()) winner = game.detectives;
+			}
+			this.moves = winner.isEmpty() ? moves : ImmutableSet.of();
+			// set last, a thread that sees the winner sees the moves too
+			this.winner = winner;
+		}
+
+		@Nonnull @Override public GameSetup getSetup() { return game.setup; }
+
+		@Nonnull @Override public ImmutableSet<Piece> getPlayers() { return game.players; }
+
+		@Nonnull @Override public Optional<Integer> getDetectiveLocation(Detective detective) {
+			int i = game.indexOf(detective);
+			return i > MRX ? Optional.of(locations[i]) : Optional.empty();
+		}
+
+		@Nonnull @Override public Optional<TicketBoard> getPlayerTickets(Piece piece) {
+			int i = game.indexOf(piece);
+			if (i < 0) return Optional.empty();
+			return Optional.of(ticket -> count(i, ticket));
+		}
+
+		@Nonnull @Override public ImmutableList<LogEntry> getMrXTravelLog() {
+			ImmutableList<LogEntry> travelLog = this.travelLog;
+			if (travelLog == null) {
+				var builder = ImmutableList.<LogEntry>builderWithExpectedSize(log.length);
+				for (int entry : log) {
+					Ticket ticket = TICKETS[entry & 7];
+					int location = entry >> 3;
+					builder.add(location == -1
+							? LogEntry.hidden(ticket)
+							: LogEntry.reveal(ticket, location));
+				}
+				this.travelLog = travelLog = builder.build();
+			}
+			return travelLog;
+		}
+
+		@Nonnull @Override public ImmutableSet<Piece> getWinner() {
+			resolve();
+			return winner;
+		}
+
+		@Nonnull @Override public ImmutableSet<Move> getAvailableMoves() {
+			resolve();
+			return moves;
+		}
+
+		private int logEntry(int round, Ticket ticket, int location) {
+			return (game.setup.rounds.get(round) ? location : -1) << 3 | ticket.ordinal();
+		}
+
+		@Nonnull @Override public GameState advance(Move move) {
+			if (!getAvailableMoves().contains(move))
+				throw new IllegalArgumentException("Illegal move: " + move);
+			int player = game.indexOf(move.commencedBy());
+			int[] locations = this.locations.clone();
+			int[] tickets = this.tickets.clone();
+			long[] occupied = this.occupied;
+			int[] log = this.log;
+			int remaining;
+			if (player == MRX) {
+				if (move instanceof DoubleMove) {
+					var x2 = (DoubleMove) move;
+					log = Arrays.copyOf(log, log.length + 2);
+					log[log.length - 2] = logEntry(log.length - 2, x2.ticket1, x2.destination1);
+					log[log.length - 1] = logEntry(log.length - 1, x2.ticket2, x2.destination2);
+					locations[MRX] = x2.destination2;
+				} else {
+					var single = (SingleMove) move;
+					log = Arrays.copyOf(log, log.length + 1);
+					log[log.length - 1] = logEntry(log.length - 1, single.ticket, single.destination);
+					locations[MRX] = single.destination;
+				}
+				for (Ticket t : move.tickets()) tickets[MRX * TICKET_COUNT + t.ordinal()]--;
+				remaining = game.detectiveBits;
+			} else {
+				var single = (SingleMove) move;
+				occupied = NodeBits.without(occupied, single.source());
+				NodeBits.set(occupied, single.destination);
+				locations[player] = single.destination;
+				tickets[player * TICKET_COUNT + single.ticket.ordinal()]--;
+				tickets[MRX * TICKET_COUNT + single.ticket.ordinal()]++;
+				remaining = this.remaining & ~(1 << player);
+			}
+			var next = new BitboardGameState(game, locations, tickets, occupied, remaining, log);
+			if (remaining == MRX_BIT) return next;
+			for (int i = 1; i < game.pieces.length; i++)
+				if ((remaining & (1 << i)) != 0 && next.canMove(i)) return next;
+			// none of the detectives left in this round can move, back to MrX
+			return new BitboardGameState(game, locations, tickets, occupied, MRX_BIT, log);
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * An array backed (CSR) copy of a game graph for allocation free neighbour iteration.
+ * <br>
+ * The neighbours of {@code node} are at edge indices {@link #start(int)} (inclusive) to
+ * {@link #end(int)} (exclusive), in ascending node order:
+ * <pre>
+ * for (int i = graph.start(node); i &lt; graph.end(node); i++) {
+ *     int neighbour = graph.neighbour(i);
+ *     int transports = graph.transports(i); // bit n set for Transport.values()[n]
+ * }
+ * </pre>
+ * Use {@link #of(GameSetup)} to get the instance compiled once per setup.
+ */
+public final class CompiledGraph {
+
+	private final int maxNode;
+	private final int[] offsets;
+	private final int[] neighbours;
+	private final byte[] transports;
+
+	CompiledGraph(int maxNode, int[] offsets, int[] neighbours, byte[] transports) {
+		this.maxNode = maxNode;
+		this.offsets = offsets;
+		this.neighbours = neighbours;
+		this.transports = transports;
+	}
+
+	/**
+	 * @param setup the game setup
+	 * @return the compiled graph of the setup; compiled on first use and cached on the setup and
+	 * its {@link GameSetup#intern() interned} instance, so equal setups compile once
+	 */
+	@Nonnull public static CompiledGraph of(@Nonnull GameSetup setup) {
+		CompiledGraph compiled = setup.compiledGraph;
+		if (compiled != null) return compiled;
+		GameSetup canonical = setup.intern();
+		compiled = canonical.compiledGraph;
+		if (compiled == null) canonical.compiledGraph = compiled = compile(canonical.graph);
+		setup.compiledGraph = compiled;
+		return compiled;
+	}
+
+	/**
+	 * @param graph the graph to compile; nodes must be non-negative
+	 * @return a new compiled graph
+	 */
+	@Nonnull public static CompiledGraph compile(
+			@Nonnull ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph) {
+		int maxNode = 0;
+		for (int node : graph.nodes()) {
+			if (node < 0) throw new IllegalArgumentException("Negative node " + node);
+			maxNode = Math.max(maxNode, node);
+		}
+		int[] offsets = new int[maxNode + 2];
+		for (int node : graph.nodes()) offsets[node + 1] = graph.degree(node);
+		for (int node = 0; node <= maxNode; node++) offsets[node + 1] += offsets[node];
+
+		int[] neighbours = new int[offsets[maxNode + 1]];
+		byte[] transports = new byte[neighbours.length];
+		for (int node : graph.nodes()) {
+			int start = offsets[node], end = start;
+			for (int neighbour : graph.adjacentNodes(node)) neighbours[end++] = neighbour;
+			Arrays.sort(neighbours, start, end);
+			for (int i = start; i < end; i++) {
+				for (Transport t : Objects.requireNonNull(
+						graph.edgeValueOrDefault(node, neighbours[i], ImmutableSet.of())))
+					transports[i] |= mask(t);
+			}
+		}
+		return new CompiledGraph(maxNode, offsets, neighbours, transports);
+	}
+
+	/**
+	 * @param transport the transport
+	 * @return the bit used for the given transport in {@link #transports(int)}
+	 */
+	public static int mask(@Nonnull Transport transport) { return 1 << transport.ordinal(); }
+
+	/**
+	 * @return the largest node id in the graph, useful for sizing node indexed arrays
+	 */
+	public int maxNode() { return maxNode; }
+
+	/**
+	 * @return the number of directed edges, i.e. twice the number of undirected edges
+	 */
+	public int edgeCount() { return neighbours.length; }
+
+	/**
+	 * @param node the node
+	 * @return the first edge index of the given node
+	 */
+	public int start(int node) { return offsets[node]; }
+
+	/**
+	 * @param node the node
+	 * @return one past the last edge index of the given node
+	 */
+	public int end(int node) { return offsets[node + 1]; }
+
+	/**
+	 * @param node the node
+	 * @return number of neighbours of the given node
+	 */
+	public int degree(int node) { return offsets[node + 1] - offsets[node]; }
+
+	/**
+	 * @param edge the edge index
+	 * @return the neighbour at the end of the edge
+	 */
+	public int neighbour(int edge) { return neighbours[edge]; }
+
+	/**
+	 * @param edge the edge index
+	 * @return the transports of the edge as a bitmask, see {@link #mask(Transport)}
+	 */
+	public int transports(int edge) { return transports[edge]; }
+
+	/**
+	 * @param source the source node
+	 * @param destination the destination node
+	 * @return the transports between the two nodes as a bitmask, 0 if they are not adjacent
+	 */
+	public int transports(int source, int destination) {
+		if (source < 0 || source > maxNode) return 0;
+		int i = Arrays.binarySearch(neighbours, start(source), end(source), destination);
+		return i < 0 ? 0 : transports[i];
+	}
+}
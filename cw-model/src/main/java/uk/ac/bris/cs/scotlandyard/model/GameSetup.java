@@ -2,6 +2,9 @@ package uk.ac.bris.cs.scotlandyard.model;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.graph.EndpointPair;
 import com.google.common.graph.ImmutableValueGraph;
 
 import java.io.Serializable;
@@ -13,10 +16,16 @@ import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
 
 /**
  * A POJO containing the ScotlandYard game graph and the MrX's reveal rounds
+ * <br>
+ * A fingerprint of the content is computed once on construction, so {@link #hashCode()} is free
+ * and {@link #equals(Object)} only compares graphs when the fingerprints match. Use
+ * {@link #intern()} to share one instance, and the caches on it, between equal setups.
  */
 public final class GameSetup implements Serializable {
 	private static final long serialVersionUID = -4214739769363149939L;
 
+	private static final Interner<GameSetup> INTERNER = Interners.newWeakInterner();
+
 	/**
 	 * The graph where nodes are stations in integers and edges as sets of transports
 	 */
@@ -25,16 +34,56 @@ public final class GameSetup implements Serializable {
 	 * MrX reveal rounds; false is hidden, true is reveal
 	 */
 	public final ImmutableList<Boolean> rounds;
+	/**
+	 * Lazily compiled copy of {@link #graph}, see {@link CompiledGraph#of(GameSetup)}
+	 */
+	transient volatile CompiledGraph compiledGraph;
+	private final long fingerprint;
 	public GameSetup(@Nonnull ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph,
 	                 @Nonnull ImmutableList<Boolean> rounds) {
 		this.graph = Objects.requireNonNull(graph);
 		this.rounds = Objects.requireNonNull(rounds);
+		this.fingerprint = fingerprint(graph, rounds);
 	}
+
+	// order independent like graph equality, and stable across runs unlike enum hash codes
+	private static long fingerprint(ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph,
+	                                ImmutableList<Boolean> rounds) {
+		long nodes = 0, edges = 0;
+		for (int node : graph.nodes()) nodes += mix(node);
+		for (EndpointPair<Integer> edge : graph.edges()) {
+			int u = edge.nodeU(), v = edge.nodeV();
+			if (!graph.isDirected() && u > v) { int swap = u; u = v; v = swap; }
+			int transports = 0;
+			for (Transport transport : graph.edgeValueOrDefault(edge.nodeU(), edge.nodeV(), ImmutableSet.of()))
+				transports |= 1 << transport.ordinal();
+			edges += mix(((long) u << 32 | v) ^ mix(transports));
+		}
+		long revealed = rounds.size();
+		for (boolean reveal : rounds) revealed = revealed * 31 + (reveal ? 1 : 0);
+		return mix(mix(mix(nodes ^ (graph.isDirected() ? 1 : 0)) ^ edges) ^ revealed);
+	}
+
+	// SplitMix64 finaliser
+	private static long mix(long x) {
+		x = (x ^ x >>> 30) * 0xBF58476D1CE4E5B9L;
+		x = (x ^ x >>> 27) * 0x94D049BB133111EBL;
+		return x ^ x >>> 31;
+	}
+
+	/**
+	 * @return the one instance equal to this setup, which is this one if none was interned before;
+	 * it shares {@link CompiledGraph#of(GameSetup)} and anything else cached on the setup
+	 */
+	@Nonnull public GameSetup intern() { return INTERNER.intern(this); }
+
 	@Override public boolean equals(Object o) {
 		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
-		return Objects.equals(graph, ((GameSetup) o).graph) &&
-				Objects.equals(rounds, ((GameSetup) o).rounds);
+		if (!(o instanceof GameSetup)) return false;
+		GameSetup that = (GameSetup) o;
+		return fingerprint == that.fingerprint &&
+				rounds.equals(that.rounds) &&
+				graph.equals(that.graph);
 	}
-	@Override public int hashCode() { return Objects.hash(graph, rounds); }
+	@Override public int hashCode() { return Long.hashCode(fingerprint); }
 }
@@ -1,6 +1,7 @@
 package uk.ac.bris.cs.scotlandyard.model;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -12,12 +13,22 @@ import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
  * A POJO representing log entries of the MrX's travel log.
  * <br>
  * Use the static factory methods {@link #hidden(Ticket)} and {@link #reveal(Ticket, int)} to
- * create new instances.
+ * create new instances. Entries are interned, there being one per ticket for every location
+ * plus hidden, so the factory methods don't allocate after the first game.
  */
 public final class LogEntry implements Serializable {
 	private static final long serialVersionUID = -6468835796153329259L;
 	// because Java's stupid Optional isn't intend to be used as a field...
 	private static final int HIDDEN = -1;
+	private static final Ticket[] TICKETS = Ticket.values();
+	// the node limit of MoveCodec; entries past it are still made, just not interned
+	private static final int MAX_INTERNED = 1 << 16;
+	private static final LogEntry[] HIDDEN_ENTRIES = Arrays.stream(TICKETS)
+			.map(ticket -> new LogEntry(ticket, HIDDEN))
+			.toArray(LogEntry[]::new);
+	// revealed entries by ticket then location, only ever replaced by full larger copies so
+	// readers need no lock
+	private static volatile LogEntry[][] revealed = new LogEntry[TICKETS.length][0];
 	private final Ticket ticket;
 	private final int location;
 	/**
@@ -25,7 +36,7 @@ public final class LogEntry implements Serializable {
 	 * @return a log entry of a hidden round for Mrx
 	 */
 	public static LogEntry hidden(
-			@Nonnull Ticket ticket) { return new LogEntry(ticket, HIDDEN); }
+			@Nonnull Ticket ticket) { return HIDDEN_ENTRIES[ticket.ordinal()]; }
 	/**
 	 * @param ticket the ticket used in this entry
 	 * @param location the location MrX is at during this reveal round
@@ -33,7 +44,24 @@ public final class LogEntry implements Serializable {
 	 */
 	public static LogEntry reveal(@Nonnull Ticket ticket, int location) {
 		if (location == HIDDEN) throw new IllegalArgumentException();
-		return new LogEntry(ticket, location);
+		LogEntry[] entries = revealed[ticket.ordinal()];
+		if (location >= 0 && location < entries.length) return entries[location];
+		if (location < 0 || location >= MAX_INTERNED) return new LogEntry(ticket, location);
+		return grow(ticket, location);
+	}
+	private static synchronized LogEntry grow(Ticket ticket, int location) {
+		LogEntry[][] all = revealed;
+		LogEntry[] entries = all[ticket.ordinal()];
+		if (location < entries.length) return entries[location];
+		// double so the copies add up to linear time
+		int length = Math.max(256, entries.length << 1);
+		while (length <= location) length <<= 1;
+		LogEntry[] grown = Arrays.copyOf(entries, Math.min(MAX_INTERNED, length));
+		for (int i = entries.length; i < grown.length; i++) grown[i] = new LogEntry(ticket, i);
+		all = all.clone();
+		all[ticket.ordinal()] = grown;
+		revealed = all;
+		return grown[location];
 	}
 	private LogEntry(@Nonnull Ticket ticket, int location) {
 		this.ticket = Objects.requireNonNull(ticket);
@@ -49,6 +77,8 @@ public final class LogEntry implements Serializable {
 	public Optional<Integer> location() {
 		return location == HIDDEN ? Optional.empty() : Optional.of(location);
 	}
+	// keeps deserialised entries interned
+	private Object readResolve() { return location == HIDDEN ? hidden(ticket) : reveal(ticket, location); }
 	@Override public boolean equals(Object o) {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
@@ -0,0 +1,300 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.AbstractValueGraph;
+import com.google.common.graph.ElementOrder;
+import com.google.common.graph.EndpointPair;
+import com.google.common.graph.ImmutableValueGraph;
+import com.google.common.graph.ValueGraph;
+import com.google.common.io.Resources;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * A game graph read straight from a memory mapped binary file, so a large map loads without
+ * parsing and without an object per edge.
+ * <br>
+ * The file is a little endian {@link CompiledGraph}: the header ({@code "SYG1"}, node count,
+ * largest node, directed edge count) followed by the sorted node ids, the CSR offsets, the
+ * neighbours and a transport mask byte per edge. {@link #write(ValueGraph, Path)} creates one,
+ * {@link #map(Path)} reads one; the CSR accessors work as they do on {@link CompiledGraph}, and
+ * the graph itself is a read only {@link ValueGraph} view of the file.
+ */
+public final class MappedGraph extends AbstractValueGraph<Integer, ImmutableSet<Transport>> {
+
+	private static final int MAGIC = 0x53594731;
+	private static final int HEADER_BYTES = 4 * Integer.BYTES;
+	// every edge value is one of these, indexed by transport mask
+	private static final ImmutableList<ImmutableSet<Transport>> TRANSPORTS;
+
+	static {
+		var sets = ImmutableList.<ImmutableSet<Transport>>builder();
+		for (int mask = 0; mask < 1 << Transport.values().length; mask++) {
+			var set = EnumSet.noneOf(Transport.class);
+			for (Transport t : Transport.values()) if ((mask & CompiledGraph.mask(t)) != 0) set.add(t);
+			sets.add(ImmutableSet.copyOf(set));
+		}
+		TRANSPORTS = sets.build();
+	}
+
+	private final int maxNode;
+	private final IntBuffer nodes;
+	private final IntBuffer offsets;
+	private final IntBuffer neighbours;
+	private final ByteBuffer transports;
+
+	private MappedGraph(int maxNode, IntBuffer nodes, IntBuffer offsets,
+	                    IntBuffer neighbours, ByteBuffer transports) {
+		this.maxNode = maxNode;
+		this.nodes = nodes;
+		this.offsets = offsets;
+		this.neighbours = neighbours;
+		this.transports = transports;
+	}
+
+	/**
+	 * Writes a graph in the binary format.
+	 *
+	 * @param graph the graph; nodes must be non-negative
+	 * @param file the file to write, replaced if it exists
+	 * @throws IOException if the file can't be written
+	 */
+	public static void write(@Nonnull ValueGraph<Integer, ImmutableSet<Transport>> graph,
+	                         @Nonnull Path file) throws IOException {
+		var compiled = CompiledGraph.compile(ImmutableValueGraph.copyOf(graph));
+		int[] ids = graph.nodes().stream().mapToInt(Integer::intValue).sorted().toArray();
+		int maxNode = compiled.maxNode(), edges = compiled.edgeCount();
+		var buffer = ByteBuffer.allocate(HEADER_BYTES
+				+ Integer.BYTES * (ids.length + maxNode + 2 + edges) + edges)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(ids.length).putInt(maxNode).putInt(edges);
+		for (int id : ids) buffer.putInt(id);
+		for (int node = 0; node <= maxNode + 1; node++)
+			buffer.putInt(node <= maxNode ? compiled.start(node) : edges);
+		for (int i = 0; i < edges; i++) buffer.putInt(compiled.neighbour(i));
+		for (int i = 0; i < edges; i++) buffer.put((byte) compiled.transports(i));
+		Files.write(file, buffer.array());
+	}
+
+	/**
+	 * Maps a file written by {@link #write(ValueGraph, Path)}. The mapping outlives the file
+	 * channel, which is closed before this returns.
+	 *
+	 * @param file the file
+	 * @return the graph in the file
+	 * @throws IOException if the file can't be read or isn't a graph
+	 */
+	@Nonnull public static MappedGraph map(@Nonnull Path file) throws IOException {
+		ByteBuffer buffer;
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.remaining() < HEADER_BYTES || buffer.getInt(0) != MAGIC)
+			throw new IOException(file + " is not a graph file");
+		int nodeCount = buffer.getInt(4), maxNode = buffer.getInt(8), edges = buffer.getInt(12);
+		if (nodeCount < 0 || maxNode < 0 || edges < 0 || (long) HEADER_BYTES
+				+ (long) Integer.BYTES * ((long) nodeCount + maxNode + 2 + edges) + edges != buffer.capacity())
+			throw new IOException(file + " has a corrupt header");
+		int position = HEADER_BYTES;
+		IntBuffer nodes = ints(buffer, position, nodeCount);
+		IntBuffer offsets = ints(buffer, position += Integer.BYTES * nodeCount, maxNode + 2);
+		IntBuffer neighbours = ints(buffer, position += Integer.BYTES * (maxNode + 2), edges);
+		ByteBuffer transports = buffer.position(position + Integer.BYTES * edges).slice();
+		return new MappedGraph(maxNode, nodes, offsets, neighbours, transports);
+	}
+
+	private static IntBuffer ints(ByteBuffer buffer, int position, int count) {
+		return buffer.position(position).slice().order(ByteOrder.LITTLE_ENDIAN)
+				.limit(Integer.BYTES * count).asIntBuffer();
+	}
+
+	/**
+	 * Converts a {@code graph.txt} file to the binary format.
+	 * <br>
+	 * Usage: {@code MappedGraph [graph.txt] <graph.bin>}; without an input it converts the
+	 * standard graph.
+	 *
+	 * @param args see above
+	 * @throws IOException if a file can't be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) throw new IllegalArgumentException("Usage: MappedGraph [graph.txt] <graph.bin>");
+		String text = args.length > 1
+				? Files.readString(Paths.get(args[0]))
+				: Resources.toString(Resources.getResource("graph.txt"), StandardCharsets.UTF_8);
+		Path out = Paths.get(args[args.length - 1]);
+		write(ScotlandYard.readGraph(text), out);
+		System.out.printf("Wrote %s (%d bytes)%n", out, Files.size(out));
+	}
+
+	/**
+	 * @param rounds MrX reveal rounds
+	 * @return a setup on an immutable copy of this graph, with {@link CompiledGraph#of(GameSetup)}
+	 * already filled in from the file
+	 */
+	@Nonnull public GameSetup setup(@Nonnull ImmutableList<Boolean> rounds) {
+		var setup = new GameSetup(ImmutableValueGraph.copyOf(this), rounds);
+		setup.compiledGraph = compiled();
+		return setup;
+	}
+
+	/**
+	 * @return a heap copy of the CSR arrays, bulk copied without going through the graph view
+	 */
+	@Nonnull public CompiledGraph compiled() {
+		int[] offsets = new int[maxNode + 2];
+		int[] neighbours = new int[this.neighbours.capacity()];
+		byte[] transports = new byte[neighbours.length];
+		this.offsets.duplicate().get(offsets);
+		this.neighbours.duplicate().get(neighbours);
+		this.transports.duplicate().get(transports);
+		return new CompiledGraph(maxNode, offsets, neighbours, transports);
+	}
+
+	/**
+	 * @return the largest node id in the graph
+	 */
+	public int maxNode() { return maxNode; }
+
+	/**
+	 * @param node the node
+	 * @return the first edge index of the given node
+	 */
+	public int start(int node) { return offsets.get(node); }
+
+	/**
+	 * @param node the node
+	 * @return one past the last edge index of the given node
+	 */
+	public int end(int node) { return offsets.get(node + 1); }
+
+	/**
+	 * @param edge the edge index
+	 * @return the neighbour at the end of the edge
+	 */
+	public int neighbour(int edge) { return neighbours.get(edge); }
+
+	/**
+	 * @param edge the edge index
+	 * @return the transports of the edge as a bitmask, see {@link CompiledGraph#mask(Transport)}
+	 */
+	public int transports(int edge) { return transports.get(edge); }
+
+	private boolean contains(int node) {
+		return search(nodes, 0, nodes.capacity(), node) >= 0;
+	}
+
+	// the edge index from source to destination, negative if there isn't one
+	private int edge(int source, int destination) {
+		if (!contains(source)) return -1;
+		return search(neighbours, start(source), end(source), destination);
+	}
+
+	private static int search(IntBuffer buffer, int from, int to, int key) {
+		int low = from, high = to - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1, value = buffer.get(mid);
+			if (value < key) low = mid + 1;
+			else if (value > key) high = mid - 1;
+			else return mid;
+		}
+		return -1;
+	}
+
+	private int checked(Object node) {
+		if (!(node instanceof Integer) || !contains((Integer) node))
+			throw new IllegalArgumentException("Node " + node + " is not an element of this graph.");
+		return (Integer) node;
+	}
+
+	// a set of ints in [from, to) of a sorted buffer
+	private static final class IntRange extends AbstractSet<Integer> {
+		private final IntBuffer buffer;
+		private final int from, to;
+
+		IntRange(IntBuffer buffer, int from, int to) {
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override public boolean contains(Object o) {
+			return o instanceof Integer && search(buffer, from, to, (Integer) o) >= 0;
+		}
+
+		@Override public int size() { return to - from; }
+
+		@Nonnull @Override public Iterator<Integer> iterator() {
+			return new Iterator<>() {
+				private int i = from;
+				@Override public boolean hasNext() { return i < to; }
+				@Override public Integer next() {
+					if (i >= to) throw new NoSuchElementException();
+					return buffer.get(i++);
+				}
+			};
+		}
+	}
+
+	@Nonnull @Override public Set<Integer> nodes() { return new IntRange(nodes, 0, nodes.capacity()); }
+
+	@Override public boolean isDirected() { return false; }
+
+	@Override public boolean allowsSelfLoops() { return false; }
+
+	@Nonnull @Override public ElementOrder<Integer> nodeOrder() { return ElementOrder.natural(); }
+
+	@Nonnull @Override public Set<Integer> adjacentNodes(Integer node) {
+		int checked = checked(node);
+		return new IntRange(neighbours, start(checked), end(checked));
+	}
+
+	@Nonnull @Override public Set<Integer> predecessors(Integer node) { return adjacentNodes(node); }
+
+	@Nonnull @Override public Set<Integer> successors(Integer node) { return adjacentNodes(node); }
+
+	@Override public int degree(Integer node) {
+		int checked = checked(node);
+		return end(checked) - start(checked);
+	}
+
+	@Override protected long edgeCount() { return neighbours.capacity() / 2; }
+
+	@Override public boolean hasEdgeConnecting(Integer nodeU, Integer nodeV) {
+		return nodeU != null && nodeV != null && edge(nodeU, nodeV) >= 0;
+	}
+
+	@Nullable @Override public ImmutableSet<Transport> edgeValueOrDefault(
+			Integer nodeU, Integer nodeV, @Nullable ImmutableSet<Transport> defaultValue) {
+		checked(nodeU);
+		checked(nodeV);
+		int edge = edge(nodeU, nodeV);
+		return edge < 0 ? defaultValue : TRANSPORTS.get(transports(edge));
+	}
+
+	@Nullable @Override public ImmutableSet<Transport> edgeValueOrDefault(
+			EndpointPair<Integer> endpoints, @Nullable ImmutableSet<Transport> defaultValue) {
+		return edgeValueOrDefault(endpoints.nodeU(), endpoints.nodeV(), defaultValue);
+	}
+}
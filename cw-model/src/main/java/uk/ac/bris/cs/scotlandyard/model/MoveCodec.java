@@ -0,0 +1,195 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Packs a {@link Move} into a single {@code long} so search code can store and compare moves
+ * without allocating. Two moves are equal if and only if their encodings are equal.
+ * <br>
+ * Layout, from the least significant bit:
+ * <pre>
+ * bits  0-15  source
+ * bits 16-31  destination (first destination of a double move)
+ * bits 32-47  second destination, 0 for single moves
+ * bits 48-50  ticket (first ticket of a double move), {@link Ticket#ordinal()}
+ * bits 51-53  second ticket, 0 for single moves
+ * bits 54-56  piece, see {@link #pieceIndex(Piece)}
+ * bit  57     set for double moves
+ * </pre>
+ * Nodes must be in {@code 0..}{@link #MAX_NODE}.
+ */
+public final class MoveCodec {
+
+	/**
+	 * The largest node that can be encoded
+	 */
+	public static final int MAX_NODE = 0xFFFF;
+
+	private static final Ticket[] TICKETS = Ticket.values();
+	private static final Piece[] PIECES = {Piece.MrX.MRX,
+			Piece.Detective.RED, Piece.Detective.GREEN, Piece.Detective.BLUE,
+			Piece.Detective.WHITE, Piece.Detective.YELLOW};
+
+	private static final int DESTINATION1_SHIFT = 16;
+	private static final int DESTINATION2_SHIFT = 32;
+	private static final int TICKET1_SHIFT = 48;
+	private static final int TICKET2_SHIFT = 51;
+	private static final int PIECE_SHIFT = 54;
+	private static final long DOUBLE_BIT = 1L << 57;
+
+	private MoveCodec() {}
+
+	/**
+	 * @param piece the piece
+	 * @return 0 for Mr X, 1 + {@link Piece.Detective#ordinal()} for detectives
+	 */
+	public static int pieceIndex(@Nonnull Piece piece) {
+		return piece.isMrX() ? 0 : 1 + ((Piece.Detective) piece).ordinal();
+	}
+
+	/**
+	 * @param index the index, see {@link #pieceIndex(Piece)}
+	 * @return the piece with the given index
+	 */
+	@Nonnull public static Piece piece(int index) { return PIECES[index]; }
+
+	/**
+	 * @param piece the piece moving
+	 * @param source where the piece starts
+	 * @param ticket the ticket used
+	 * @param destination where the piece ends up
+	 * @return the encoded single move
+	 */
+	public static long single(@Nonnull Piece piece, int source, @Nonnull Ticket ticket, int destination) {
+		return (long) pieceIndex(piece) << PIECE_SHIFT
+				| (long) ticket.ordinal() << TICKET1_SHIFT
+				| (long) checkNode(destination) << DESTINATION1_SHIFT
+				| checkNode(source);
+	}
+
+	/**
+	 * @param piece the piece moving
+	 * @param source where the piece starts
+	 * @param ticket1 the first ticket used
+	 * @param destination1 where the piece is after the first half
+	 * @param ticket2 the second ticket used
+	 * @param destination2 where the piece ends up
+	 * @return the encoded double move
+	 */
+	public static long doubleMove(@Nonnull Piece piece, int source,
+	                              @Nonnull Ticket ticket1, int destination1,
+	                              @Nonnull Ticket ticket2, int destination2) {
+		return DOUBLE_BIT
+				| (long) pieceIndex(piece) << PIECE_SHIFT
+				| (long) ticket2.ordinal() << TICKET2_SHIFT
+				| (long) ticket1.ordinal() << TICKET1_SHIFT
+				| (long) checkNode(destination2) << DESTINATION2_SHIFT
+				| (long) checkNode(destination1) << DESTINATION1_SHIFT
+				| checkNode(source);
+	}
+
+	/**
+	 * @param move the move
+	 * @return the encoded move
+	 */
+	public static long encode(@Nonnull Move move) {
+		// not a visitor, that would box the result
+		if (move instanceof SingleMove) {
+			SingleMove m = (SingleMove) move;
+			return single(m.commencedBy(), m.source(), m.ticket, m.destination);
+		}
+		if (move instanceof DoubleMove) {
+			DoubleMove m = (DoubleMove) move;
+			return doubleMove(m.commencedBy(), m.source(),
+					m.ticket1, m.destination1, m.ticket2, m.destination2);
+		}
+		throw new IllegalArgumentException("Unknown move type " + Objects.requireNonNull(move).getClass());
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return a new {@link SingleMove} or {@link DoubleMove} equal to the one encoded
+	 */
+	@Nonnull public static Move decode(long move) {
+		if (isDouble(move)) return new DoubleMove(piece(move), source(move),
+				ticket1(move), destination1(move), ticket2(move), destination2(move));
+		return new SingleMove(piece(move), source(move), ticket1(move), destination1(move));
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return whether the move is a double move
+	 */
+	public static boolean isDouble(long move) { return (move & DOUBLE_BIT) != 0; }
+
+	/**
+	 * @param move the encoded move
+	 * @return the index of the moving piece, see {@link #pieceIndex(Piece)}
+	 */
+	public static int pieceIndex(long move) { return (int) (move >>> PIECE_SHIFT) & 7; }
+
+	/**
+	 * @param move the encoded move
+	 * @return the moving piece
+	 */
+	@Nonnull public static Piece piece(long move) { return PIECES[pieceIndex(move)]; }
+
+	/**
+	 * @param move the encoded move
+	 * @return the source of the move
+	 */
+	public static int source(long move) { return (int) move & MAX_NODE; }
+
+	/**
+	 * @param move the encoded move
+	 * @return the ticket of a single move or the first ticket of a double move
+	 */
+	@Nonnull public static Ticket ticket1(long move) {
+		return TICKETS[(int) (move >>> TICKET1_SHIFT) & 7];
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return the destination of a single move or the first destination of a double move
+	 */
+	public static int destination1(long move) { return (int) (move >>> DESTINATION1_SHIFT) & MAX_NODE; }
+
+	/**
+	 * @param move the encoded double move
+	 * @return the second ticket of a double move
+	 */
+	@Nonnull public static Ticket ticket2(long move) {
+		return TICKETS[(int) (move >>> TICKET2_SHIFT) & 7];
+	}
+
+	/**
+	 * @param move the encoded double move
+	 * @return the second destination of a double move
+	 */
+	public static int destination2(long move) { return (int) (move >>> DESTINATION2_SHIFT) & MAX_NODE; }
+
+	/**
+	 * @param move the encoded move
+	 * @return where the piece ends up after the whole move
+	 */
+	public static int destination(long move) {
+		return isDouble(move) ? destination2(move) : destination1(move);
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return a human readable form matching {@link Move#toString()}
+	 */
+	@Nonnull public static String toString(long move) { return decode(move).toString(); }
+
+	private static int checkNode(int node) {
+		if (node < 0 || node > MAX_NODE) throw new IllegalArgumentException("Node out of range: " + node);
+		return node;
+	}
+}
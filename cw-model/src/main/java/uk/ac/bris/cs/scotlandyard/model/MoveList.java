@@ -0,0 +1,117 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A growable list of moves encoded with {@link MoveCodec}. Search code can keep one list per
+ * ply and {@link #clear()} it between nodes so generating moves allocates nothing once the
+ * backing array is large enough.
+ */
+public final class MoveList {
+
+	private long[] moves;
+	private int size;
+
+	/**
+	 * Creates an empty list
+	 */
+	public MoveList() { this(64); }
+
+	/**
+	 * @param capacity the initial capacity
+	 */
+	public MoveList(int capacity) { this.moves = new long[Math.max(capacity, 1)]; }
+
+	/**
+	 * @param board the board
+	 * @return a new list of the available moves of the board
+	 */
+	@Nonnull public static MoveList of(@Nonnull Board board) {
+		var available = board.getAvailableMoves();
+		MoveList list = new MoveList(available.size());
+		for (Move move : available) list.add(MoveCodec.encode(move));
+		return list;
+	}
+
+	/**
+	 * @param move the encoded move to append
+	 */
+	public void add(long move) {
+		if (size == moves.length) moves = Arrays.copyOf(moves, size * 2);
+		moves[size++] = move;
+	}
+
+	/**
+	 * @param index the index
+	 * @return the encoded move at the given index
+	 */
+	public long get(int index) {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+		return moves[index];
+	}
+
+	/**
+	 * @param index the index
+	 * @param move the encoded move to store at the given index
+	 */
+	public void set(int index, long move) {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+		moves[index] = move;
+	}
+
+	/**
+	 * @return the number of moves
+	 */
+	public int size() { return size; }
+
+	/**
+	 * @return whether there are no moves
+	 */
+	public boolean isEmpty() { return size == 0; }
+
+	/**
+	 * Removes all moves, keeping the backing array
+	 */
+	public void clear() { size = 0; }
+
+	/**
+	 * @param move the encoded move
+	 * @return whether the list contains the move; a linear scan, see {@link MoveSet} for lookups
+	 */
+	public boolean contains(long move) {
+		for (int i = 0; i < size; i++) if (moves[i] == move) return true;
+		return false;
+	}
+
+	/**
+	 * Sorts the moves by their encoding, handy for comparing move lists in tests
+	 */
+	public void sort() { Arrays.sort(moves, 0, size); }
+
+	/**
+	 * @return a copy of the encoded moves
+	 */
+	@Nonnull public long[] toArray() { return Arrays.copyOf(moves, size); }
+
+	/**
+	 * @return the moves decoded back into {@link Move} instances
+	 */
+	@Nonnull public ImmutableList<Move> toMoves() {
+		var builder = ImmutableList.<Move>builderWithExpectedSize(size);
+		for (int i = 0; i < size; i++) builder.add(MoveCodec.decode(moves[i]));
+		return builder.build();
+	}
+
+	@Override public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) sb.append(", ");
+			sb.append(MoveCodec.toString(moves[i]));
+		}
+		return sb.append(']').toString();
+	}
+}
@@ -0,0 +1,114 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * An open addressing hash set of moves encoded with {@link MoveCodec}. Unlike a
+ * {@code Set<Move>} neither adding nor looking up a move allocates or boxes.
+ */
+public final class MoveSet {
+
+	// encodings never use the top bits so -1 can't be a move
+	private static final long EMPTY = -1;
+
+	private long[] slots;
+	private int size;
+
+	/**
+	 * Creates an empty set
+	 */
+	public MoveSet() { this(64); }
+
+	/**
+	 * @param expected the number of moves expected, the set grows if more are added
+	 */
+	public MoveSet(int expected) {
+		this.slots = new long[Integer.highestOneBit(Math.max(expected, 4) * 2 - 1) * 2];
+		Arrays.fill(slots, EMPTY);
+	}
+
+	/**
+	 * @param board the board
+	 * @return a new set of the available moves of the board
+	 */
+	@Nonnull public static MoveSet of(@Nonnull Board board) {
+		var available = board.getAvailableMoves();
+		MoveSet set = new MoveSet(available.size());
+		for (Move move : available) set.add(MoveCodec.encode(move));
+		return set;
+	}
+
+	/**
+	 * @param moves the encoded moves
+	 * @return a new set of the given moves
+	 */
+	@Nonnull public static MoveSet of(@Nonnull MoveList moves) {
+		MoveSet set = new MoveSet(moves.size());
+		for (int i = 0; i < moves.size(); i++) set.add(moves.get(i));
+		return set;
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return true if the move was not already in the set
+	 */
+	public boolean add(long move) {
+		if (move == EMPTY) throw new IllegalArgumentException("Not an encoded move");
+		int i = find(slots, move);
+		if (slots[i] == move) return false;
+		slots[i] = move;
+		if (++size * 2 > slots.length) grow();
+		return true;
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return whether the set contains the move
+	 */
+	public boolean contains(long move) { return move != EMPTY && slots[find(slots, move)] == move; }
+
+	/**
+	 * @return the number of moves
+	 */
+	public int size() { return size; }
+
+	/**
+	 * @return whether there are no moves
+	 */
+	public boolean isEmpty() { return size == 0; }
+
+	/**
+	 * Removes all moves, keeping the backing array
+	 */
+	public void clear() {
+		Arrays.fill(slots, EMPTY);
+		size = 0;
+	}
+
+	/**
+	 * @return a new list of the moves in no particular order
+	 */
+	@Nonnull public MoveList toList() {
+		MoveList list = new MoveList(size);
+		for (long slot : slots) if (slot != EMPTY) list.add(slot);
+		return list;
+	}
+
+	private void grow() {
+		long[] old = slots;
+		slots = new long[old.length * 2];
+		Arrays.fill(slots, EMPTY);
+		for (long move : old) if (move != EMPTY) slots[find(slots, move)] = move;
+	}
+
+	private static int find(long[] slots, long move) {
+		int mask = slots.length - 1;
+		// the low bits are mostly the source which is shared by every move of a state, so mix first
+		long h = move * 0x9E3779B97F4A7C15L;
+		int i = (int) (h ^ (h >>> 32)) & mask;
+		while (slots[i] != EMPTY && slots[i] != move) i = (i + 1) & mask;
+		return i;
+	}
+}
@@ -2,7 +2,6 @@ package uk.ac.bris.cs.scotlandyard.model;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.ImmutableMap;
 
 import javax.annotation.Nonnull;
 
@@ -17,80 +16,54 @@ public final class MyGameStateFactory implements Factory<GameState> {
 
 	private final class MyGameState implements GameState {
 		private final GameSetup setup;
+		private final CompiledGraph graph;
 		private final ImmutableSet<Piece> remaining;
-		private final ImmutableList<LogEntry> log;
+		private final TravelLog log;
 		private final Player mrX;
 		private final List<Player> detectives;
 		private final ImmutableList<Player> everyone;
-		private final ImmutableSet<Move> moves;
-		private ImmutableSet<Piece> winner;
-		private int currentRound = 0;
+		private final long[] occupied;
+		// These are only worked out when they're first needed, see resolve()
+		private ImmutableSet<Move> moves;
+		private volatile ImmutableSet<Piece> winner;
 
 
 		private MyGameState(
 				final GameSetup setup,
 				final ImmutableSet<Piece> remaining,
-				final ImmutableList<LogEntry> log,
+				final TravelLog log,
 				final Player mrX,
-				final List<Player> detectives
+				final List<Player> detectives,
+				final long[] occupied
 		) {
 			// Initialising the local attributes
 			this.setup = setup;
+			this.graph = CompiledGraph.of(setup);
 			this.remaining = remaining;
 			this.log = log;
 			this.mrX = mrX;
 			this.detectives = detectives;
+			this.occupied = occupied;
 
-			// Checking attributes are not null
-			if (mrX == null) throw new NullPointerException();
-			if (detectives == null) throw new NullPointerException();
-
-			// Making sure that mrX is not a detective
-			if (mrX.isDetective()) throw new IllegalArgumentException();
-
-			ArrayList<Piece> coloursTaken = new ArrayList<>();
-			ArrayList<Integer> locationsTaken = new ArrayList<>();
-
-			for (Player detective : detectives) {
-				// Making sure the detective isn't null and that it is not a MrX piece
-				if (detective == null) throw new NullPointerException();
-				if (detective.isMrX()) throw new IllegalArgumentException();
-
-				// No duplicate detectives in the game
-				if (coloursTaken.contains(detective.piece())) throw new IllegalArgumentException();
-				coloursTaken.add(detective.piece());
-
-				// No two detectives should have the same location
-				if (locationsTaken.contains(detective.location())) throw new IllegalArgumentException();
-				locationsTaken.add(detective.location());
-
-				// Detectives shouldn't have a 'Secret' or 'Double' ticket
-				if (detective.has(Ticket.SECRET)) throw new IllegalArgumentException();
-				if (detective.has(Ticket.DOUBLE)) throw new IllegalArgumentException();
-			}
-			// Throw an exception if there are no rounds
-			if (setup.rounds.isEmpty()) throw new IllegalArgumentException();
+			// States are only made by build() and advance() so they're valid already, but check anyway when assertions
+			// are turned on (like they are in the tests)
+			assert invariantsHold();
 
 			// A list of all the players (MrX and the detectives)
 			this.everyone = ImmutableList.<Player>builder().add(this.mrX).addAll(this.detectives).build();
-
-			// Calculate the possible single and double moves that the player can take and store it in 'moves'
-			ImmutableSet<SingleMove> singleMoves = makeSingleMoves(this.mrX, this.mrX.location());
-			ImmutableSet<DoubleMove> doubleMoves = makeDoubleMoves(this.mrX, this.mrX.location(), singleMoves);
-			this.moves = ImmutableSet.<Move>builder().addAll(singleMoves).addAll(doubleMoves).build();
 		}
 
 		private final class PlayerTickets implements TicketBoard {
-			private final ImmutableMap<Ticket, Integer> tickets;
+			private final Player player;
 
-			private PlayerTickets(ImmutableMap<Ticket, Integer> tickets) {
-				// Initialise the local tickets variable
-				this.tickets = tickets;
+			private PlayerTickets(Player player) {
+				// Initialise the local player variable
+				this.player = player;
 			}
 
 			@Override public int getCount(@Nonnull Ticket ticket) {
 				// Return the count of the ticket or return 0 if the player doesn't have that ticket
-				return this.tickets.getOrDefault(Objects.requireNonNull(ticket), 0);
+				return this.player.count(Objects.requireNonNull(ticket));
 			}
 		}
 
@@ -99,22 +72,15 @@ public final class MyGameStateFactory implements Factory<GameState> {
 			final ArrayList<SingleMove> singleMoves = new ArrayList<>();
 
 			// Iterate through all the destinations the player could move to from his current position
-			for (int destination : this.setup.graph.adjacentNodes(source)) {
-				boolean occupied = false;
-
-				// If the destination is occupied by a detective then set 'occupied' to true
-				for (Player detective : this.detectives) {
-					if (detective.location() == destination) {
-						occupied = true;
-						break;
-					}
-				}
-
-				// Skip this iteration if the destination has been occupied
-				if (occupied) continue;
+			for (int edge = this.graph.start(source); edge < this.graph.end(source); edge++) {
+				int destination = this.graph.neighbour(edge);
+				// Skip this iteration if the destination is occupied by a detective
+				if (NodeBits.get(this.occupied, destination)) continue;
 
 				// Go through all the transport methods that can take the player to that destination
-				for (Transport t : Objects.requireNonNull(this.setup.graph.edgeValueOrDefault(source, destination, ImmutableSet.of()))) {
+				for (Transport t : Transport.values()) {
+					// Skip the transport methods that don't connect the source and the destination
+					if ((this.graph.transports(edge) & CompiledGraph.mask(t)) == 0) continue;
 					// If the player has the required transport ticket then add this destination to avaiable single moves
 					if (player.has(t.requiredTicket()))
 						singleMoves.add(new SingleMove(player.piece(), source, t.requiredTicket(), destination));
@@ -131,7 +97,7 @@ public final class MyGameStateFactory implements Factory<GameState> {
 
 		private ImmutableSet<DoubleMove> makeDoubleMoves(Player player, int source, ImmutableSet<SingleMove> singleMoves) {
 			// Calculate the number of rounds left
-			int roundsLeft = this.setup.rounds.size() - currentRound;
+			int roundsLeft = this.setup.rounds.size() - this.log.size();
 			// If the player doesn't have a 'Double' ticket or there's not enough rounds left, then return an empty set
 			if (!player.has(Ticket.DOUBLE) || roundsLeft < 2) return ImmutableSet.of();
 
@@ -151,22 +117,15 @@ public final class MyGameStateFactory implements Factory<GameState> {
 				});
 
 				// Iterate through all the destinations the player could move to from destination1
-				for (int destination2 : this.setup.graph.adjacentNodes(destination1)) {
-					boolean occupied = false;
-
-					// If destination2 is occupied by a detective then set 'occupied' to true
-					for (Player detective : this.detectives) {
-						if (detective.location() == destination2) {
-							occupied = true;
-							break;
-						}
-					}
-
-					// Skip this iteration if destination2 has been occupied
-					if (occupied) continue;
+				for (int edge = this.graph.start(destination1); edge < this.graph.end(destination1); edge++) {
+					int destination2 = this.graph.neighbour(edge);
+					// Skip this iteration if destination2 is occupied by a detective
+					if (NodeBits.get(this.occupied, destination2)) continue;
 
 					// Go through all the transport methods that can take the player from destination1 to destination2
-					for (Transport t : Objects.requireNonNull(this.setup.graph.edgeValueOrDefault(destination1, destination2, ImmutableSet.of()))) {
+					for (Transport t : Transport.values()) {
+						// Skip the transport methods that don't connect destination1 and destination2
+						if ((this.graph.transports(edge) & CompiledGraph.mask(t)) == 0) continue;
 						// IF the player has 1 required transport ticket and it's different to the first move ticket
 						// OR the player has 2+ required transport tickets and it's the same as the first move ticket
 						// THEN add this destination to avaiable double moves
@@ -175,8 +134,9 @@ public final class MyGameStateFactory implements Factory<GameState> {
 							doubleMoves.add(new DoubleMove(player.piece(), source, move.ticket, destination1, t.requiredTicket(), destination2));
 					}
 
-					// If the player has 2 'Secret' tickets then add another double move destination using a 'Secret' ticket
-					if (player.hasAtLeast(Ticket.SECRET, 2)) {
+					// If the player has another 'Secret' ticket (2 if the first move used one) then add another double move
+					// destination using a 'Secret' ticket
+					if (player.hasAtLeast(Ticket.SECRET, move.ticket == Ticket.SECRET ? 2 : 1)) {
 						doubleMoves.add(new DoubleMove(player.piece(), source, move.ticket, destination1, Ticket.SECRET, destination2));
 					}
 				}
@@ -185,6 +145,93 @@ public final class MyGameStateFactory implements Factory<GameState> {
 			return ImmutableSet.copyOf(doubleMoves);
 		}
 
+		private ImmutableSet<Move> makeMoves(ImmutableSet<Piece> remaining) {
+			// If it's MrX's turn then he can make both single and double moves
+			if (remaining.contains(this.mrX.piece())) {
+				ImmutableSet<SingleMove> singleMoves = makeSingleMoves(this.mrX, this.mrX.location());
+				ImmutableSet<DoubleMove> doubleMoves = makeDoubleMoves(this.mrX, this.mrX.location(), singleMoves);
+				return ImmutableSet.<Move>builder().addAll(singleMoves).addAll(doubleMoves).build();
+			}
+
+			// Otherwise it's the single moves of every detective that hasn't moved yet this round
+			ImmutableSet.Builder<Move> moves = ImmutableSet.builder();
+			for (Player detective : this.detectives) {
+				if (remaining.contains(detective.piece()))
+					moves.addAll(makeSingleMoves(detective, detective.location()));
+			}
+			return moves.build();
+		}
+
+		private ImmutableSet<Piece> findWinner(boolean mrXTurn, ImmutableSet<Move> moves) {
+			ImmutableSet<Piece> mrXWins = ImmutableSet.of(this.mrX.piece());
+			ImmutableSet<Piece> detectivesWin = this.detectives.stream()
+					.map(Player::piece)
+					.collect(ImmutableSet.toImmutableSet());
+
+			// A detective has caught MrX
+			if (NodeBits.get(this.occupied, this.mrX.location())) return detectivesWin;
+
+			// MrX has survived every round
+			if (mrXTurn && this.log.size() == this.setup.rounds.size()) return mrXWins;
+
+			// None of the detectives can move anymore (they can if it's still their turn)
+			boolean detectivesStuck = mrXTurn;
+			for (Player detective : this.detectives) {
+				if (!detectivesStuck) break;
+				if (!makeSingleMoves(detective, detective.location()).isEmpty()) detectivesStuck = false;
+			}
+			if (detectivesStuck) return mrXWins;
+
+			// It's MrX's turn but he's got nowhere to go
+			if (mrXTurn && moves.isEmpty()) return detectivesWin;
+
+			// Nobody has won yet
+			return ImmutableSet.of();
+		}
+
+		private boolean invariantsHold() {
+			// The players have to be valid
+			validate(this.setup, this.mrX, this.detectives);
+
+			// The occupancy bitset has to match where the detectives are
+			if (!Arrays.equals(this.occupied, makeOccupied(this.setup, this.detectives)))
+				throw new IllegalStateException("Occupancy doesn't match the detectives");
+
+			// Either MrX or some of the detectives have to be next
+			if (this.remaining.isEmpty()) throw new IllegalStateException("Nobody is left to move");
+
+			// MrX can't have made more moves than there are rounds
+			if (this.log.size() > this.setup.rounds.size()) throw new IllegalStateException("Too many log entries");
+			return true;
+		}
+
+		private void resolve() {
+			// The moves and the winner only need working out once
+			if (this.winner != null) return;
+
+			// Calculate the moves the remaining players can make
+			boolean mrXTurn = this.remaining.contains(this.mrX.piece());
+			ImmutableSet<Move> moves = makeMoves(this.remaining);
+
+			// If none of the detectives left this round can move then it's MrX's turn again
+			if (!mrXTurn && moves.isEmpty()) {
+				mrXTurn = true;
+				moves = makeMoves(ImmutableSet.of(this.mrX.piece()));
+			}
+
+			// Check if anyone has won, there are no moves to make once the game has a winner
+			ImmutableSet<Piece> winner = findWinner(mrXTurn, moves);
+			this.moves = winner.isEmpty() ? moves : ImmutableSet.of();
+			this.winner = winner;
+		}
+
+		private TravelLog append(TravelLog log, Ticket ticket, int destination) {
+			// MrX's location is only shown on the reveal rounds
+			return log.append(this.setup.rounds.get(log.size())
+					? LogEntry.reveal(ticket, destination)
+					: LogEntry.hidden(ticket));
+		}
+
 
 		@Override public GameSetup getSetup() { return setup; }
 
@@ -207,34 +254,132 @@ public final class MyGameStateFactory implements Factory<GameState> {
 		@Override public Optional<TicketBoard> getPlayerTickets(Piece piece) {
 			// Find the piece we're looking for and return their ticket as a PlayerTickets object
 			for (final Player p : this.everyone) {
-				if (p.piece() == piece) return Optional.of(new PlayerTickets(p.tickets()));
+				if (p.piece() == piece) return Optional.of(new PlayerTickets(p));
 			}
 			// If it wasn't found then return empty
 			return Optional.empty();
 		}
 
-		@Override public ImmutableList<LogEntry> getMrXTravelLog() { return this.log; }
+		@Override public ImmutableList<LogEntry> getMrXTravelLog() { return this.log.asList(); }
 
-		@Override public ImmutableSet<Move> getAvailableMoves() { return this.moves; }
+		@Override public ImmutableSet<Move> getAvailableMoves() {
+			resolve();
+			return this.moves;
+		}
 
 		@Override public GameState advance(Move move) {
 			// Stop illegal moves from happening
-			if (!moves.contains(move)) throw new IllegalArgumentException("Illegal move: " + move);
+			if (!getAvailableMoves().contains(move)) throw new IllegalArgumentException("Illegal move: " + move);
+
+			if (move.commencedBy().isMrX()) {
+				// Add the tickets MrX used to his travel log and find out where he ends up, the new log shares
+				// every entry of the old one
+				TravelLog log = move.visit(new Visitor<TravelLog>() {
+					@Override public TravelLog visit(SingleMove move) {
+						return append(MyGameState.this.log, move.ticket, move.destination);
+					}
+					@Override public TravelLog visit(DoubleMove move) {
+						return append(append(MyGameState.this.log, move.ticket1, move.destination1),
+								move.ticket2, move.destination2);
+					}
+				});
+				int destination = move.visit(new FunctionalVisitor<>(m -> m.destination, m -> m.destination2));
+				Player newMrX = this.mrX.use(move.tickets()).at(destination);
+
+				// Now every detective gets a turn
+				ImmutableSet<Piece> newRemaining = this.detectives.stream()
+						.map(Player::piece)
+						.collect(ImmutableSet.toImmutableSet());
+				return new MyGameState(this.setup, newRemaining, log, newMrX, this.detectives, this.occupied);
+			}
+
+			// Detectives can only make single moves
+			SingleMove singleMove = (SingleMove) move;
+
+			// Move the detective and give the ticket they used to MrX
+			List<Player> newDetectives = new ArrayList<>(this.detectives);
+			for (int i = 0; i < newDetectives.size(); i++) {
+				Player detective = newDetectives.get(i);
+				if (detective.piece() == move.commencedBy())
+					newDetectives.set(i, detective.use(singleMove.ticket).at(singleMove.destination));
+			}
+			Player newMrX = this.mrX.give(singleMove.ticket);
+
+			// Move the detective on the occupancy bitset as well
+			long[] newOccupied = NodeBits.without(this.occupied, singleMove.source());
+			NodeBits.set(newOccupied, singleMove.destination);
+
+			// This detective has had their turn, once they all have it's MrX's turn again
+			ImmutableSet<Piece> newRemaining = this.remaining.stream()
+					.filter(piece -> piece != move.commencedBy())
+					.collect(ImmutableSet.toImmutableSet());
+			if (newRemaining.isEmpty()) newRemaining = ImmutableSet.of(this.mrX.piece());
+			return new MyGameState(this.setup, newRemaining, this.log, newMrX, newDetectives, newOccupied);
+		}
+
+		@Override public ImmutableSet<Piece> getWinner() {
+			resolve();
+			return this.winner;
+		}
+	}
+
+	private static boolean validate(GameSetup setup, Player mrX, List<Player> detectives) {
+		// Checking attributes are not null
+		if (mrX == null) throw new NullPointerException();
+		if (detectives == null) throw new NullPointerException();
+
+		// Making sure that mrX is not a detective
+		if (mrX.isDetective()) throw new IllegalArgumentException();
+
+		// MrX has to be on a node of the map
+		if (!setup.graph.nodes().contains(mrX.location())) throw new IllegalArgumentException();
 
-			// If this move was by done by a detective then it's time to increment the currentRound number
-			if (move.commencedBy().isDetective()) currentRound++;
+		ArrayList<Piece> coloursTaken = new ArrayList<>();
+		ArrayList<Integer> locationsTaken = new ArrayList<>();
 
-			return null;
+		for (Player detective : detectives) {
+			// Making sure the detective isn't null and that it is not a MrX piece
+			if (detective == null) throw new NullPointerException();
+			if (detective.isMrX()) throw new IllegalArgumentException();
+
+			// No duplicate detectives in the game
+			if (coloursTaken.contains(detective.piece())) throw new IllegalArgumentException();
+			coloursTaken.add(detective.piece());
+
+			// No two detectives should have the same location
+			if (locationsTaken.contains(detective.location())) throw new IllegalArgumentException();
+			locationsTaken.add(detective.location());
+
+			// Detectives have to be on a node of the map
+			if (!setup.graph.nodes().contains(detective.location())) throw new IllegalArgumentException();
+
+			// Detectives shouldn't have a 'Secret' or 'Double' ticket
+			if (detective.has(Ticket.SECRET)) throw new IllegalArgumentException();
+			if (detective.has(Ticket.DOUBLE)) throw new IllegalArgumentException();
 		}
+		// Throw an exception if there are no rounds
+		if (setup.rounds.isEmpty()) throw new IllegalArgumentException();
 
-		@Override public ImmutableSet<Piece> getWinner() { return ImmutableSet.of(); }
+		// Everything checks out
+		return true;
+	}
+
+	private static long[] makeOccupied(GameSetup setup, List<Player> detectives) {
+		// A bit for every node on the map which is set if a detective is standing on it
+		long[] occupied = NodeBits.create(CompiledGraph.of(setup).maxNode());
+		for (Player detective : detectives) NodeBits.set(occupied, detective.location());
+		return occupied;
 	}
 
 	@Nonnull @Override public GameState build(GameSetup setup, Player mrX, ImmutableList<Player> detectives) {
 		// Check the graph is not empty
 		if (setup.graph.edges().size() == 0) throw new IllegalArgumentException();
 
-		return new MyGameState(setup, ImmutableSet.of(Piece.MrX.MRX), ImmutableList.of(), mrX, detectives);
+		// Check the players once here, every state after this one comes from advance() so it's valid already
+		validate(setup, mrX, detectives);
+
+		return new MyGameState(setup, ImmutableSet.of(Piece.MrX.MRX), TravelLog.EMPTY, mrX, detectives,
+				makeOccupied(setup, detectives));
 	}
 
 }
@@ -0,0 +1,68 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Static helpers for node bitsets packed into {@code long[]} words where bit {@code n} is set if
+ * node {@code n} is a member. The standard 199 node map fits in four words.
+ * <br>
+ * Arrays passed to {@link #with(long[], int)} and {@link #without(long[], int)} are never
+ * modified so they can be shared freely between immutable game states.
+ */
+final class NodeBits {
+
+	private NodeBits() {}
+
+	/**
+	 * @param maxNode the largest node id that needs to be stored
+	 * @return an empty bitset large enough for nodes {@code 0..maxNode}
+	 */
+	@Nonnull static long[] create(int maxNode) { return new long[(maxNode >>> 6) + 1]; }
+
+	/**
+	 * @param bits the bitset
+	 * @param node the node
+	 * @return whether the node is in the bitset
+	 */
+	static boolean get(@Nonnull long[] bits, int node) {
+		return (bits[node >>> 6] & (1L << node)) != 0;
+	}
+
+	/**
+	 * Sets the given node in place; only use on arrays not yet shared.
+	 *
+	 * @param bits the bitset
+	 * @param node the node
+	 */
+	static void set(@Nonnull long[] bits, int node) { bits[node >>> 6] |= 1L << node; }
+
+	/**
+	 * Clears the given node in place; only use on arrays not yet shared.
+	 *
+	 * @param bits the bitset
+	 * @param node the node
+	 */
+	static void clear(@Nonnull long[] bits, int node) { bits[node >>> 6] &= ~(1L << node); }
+
+	/**
+	 * @param bits the bitset
+	 * @param node the node to add
+	 * @return a copy of the bitset with the node added
+	 */
+	@Nonnull static long[] with(@Nonnull long[] bits, int node) {
+		long[] copy = bits.clone();
+		set(copy, node);
+		return copy;
+	}
+
+	/**
+	 * @param bits the bitset
+	 * @param node the node to remove
+	 * @return a copy of the bitset with the node removed
+	 */
+	@Nonnull static long[] without(@Nonnull long[] bits, int node) {
+		long[] copy = bits.clone();
+		clear(copy, node);
+		return copy;
+	}
+}
@@ -2,7 +2,7 @@ package uk.ac.bris.cs.scotlandyard.model;
 
 import com.google.common.collect.ImmutableMap;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Objects;
 
 import javax.annotation.Nonnull;
@@ -12,11 +12,21 @@ import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
 /**
  * A POJO representing an immutable player of the ScotlandYard game.
  * Each player contains the {@link Piece} (coloured counter), {@link Ticket}s, and the location.
+ * <br>
+ * Tickets are kept as counts by ordinal, so using or giving them copies five ints rather than a
+ * map; {@link #tickets()} is built from the counts when asked for.
  */
 public final class Player {
+	private static final Ticket[] TICKETS = Ticket.values();
+
 	private final Piece piece;
-	private final ImmutableMap<Ticket, Integer> tickets;
+	// counts by ordinal, shared between players and never written after construction
+	private final int[] counts;
+	// bit per ordinal of the tickets in the map, which may leave some out
+	private final int present;
 	private final int location;
+	// the map given or, for derived players, built on first use
+	private ImmutableMap<Ticket, Integer> tickets;
 
 	public Player(@Nonnull Piece piece,
 	              @Nonnull ImmutableMap<Ticket, Integer> tickets,
@@ -24,6 +34,24 @@ public final class Player {
 		this.piece = Objects.requireNonNull(piece);
 		this.tickets = Objects.requireNonNull(tickets);
 		this.location = location;
+		int[] counts = new int[TICKETS.length];
+		int present = 0;
+		for (var entry : tickets.entrySet()) {
+			int ordinal = entry.getKey().ordinal();
+			counts[ordinal] = entry.getValue();
+			present |= 1 << ordinal;
+		}
+		this.counts = counts;
+		this.present = present;
+	}
+
+	private Player(Piece piece, int[] counts, int present, int location,
+	               ImmutableMap<Ticket, Integer> tickets) {
+		this.piece = piece;
+		this.counts = counts;
+		this.present = present;
+		this.location = location;
+		this.tickets = tickets;
 	}
 	/**
 	 * @return the piece
@@ -40,56 +68,79 @@ public final class Player {
 	/**
 	 * @return the ticket
 	 */
-	@Nonnull public ImmutableMap<Ticket, Integer> tickets() { return tickets; }
+	@Nonnull public ImmutableMap<Ticket, Integer> tickets() {
+		// racy but safe, like String.hashCode: every thread builds an equal immutable map
+		ImmutableMap<Ticket, Integer> map = tickets;
+		if (map == null) {
+			var builder = ImmutableMap.<Ticket, Integer>builderWithExpectedSize(TICKETS.length);
+			for (Ticket ticket : TICKETS)
+				if ((present & 1 << ticket.ordinal()) != 0) builder.put(ticket, counts[ticket.ordinal()]);
+			tickets = map = builder.build();
+		}
+		return map;
+	}
 	/**
 	 * @return the location
 	 */
 	public int location() { return location; }
+	/**
+	 * @param ticket the ticket
+	 * @return the number of the given ticket, 0 if the player has none
+	 */
+	public int count(@Nonnull Ticket ticket) { return counts[ticket.ordinal()]; }
 	/**
 	 * @param ticket the ticket
 	 * @return whether the player has the given ticket
 	 */
-	public boolean has(@Nonnull Ticket ticket) {
-		return tickets.getOrDefault(Objects.requireNonNull(ticket), 0) != 0;
-	}
+	public boolean has(@Nonnull Ticket ticket) { return counts[ticket.ordinal()] != 0; }
 	/**
 	 * @param ticket the ticket
 	 * @param count the required count
 	 * @return whether the player has &gt;= the required numbers of the given ticket
 	 */
-	public boolean hasAtLeast(@Nonnull Ticket ticket, int count) {
-		return tickets.getOrDefault(Objects.requireNonNull(ticket), 0) >= count;
-	}
+	public boolean hasAtLeast(@Nonnull Ticket ticket, int count) { return counts[ticket.ordinal()] >= count; }
 	/**
-	 * See {@link #give(Ticket)}
+	 * See {@link #give(Ticket)}; allocates a single new player for all the tickets.
 	 *
 	 * @param tickets the tickets
 	 * @return a new player with one more of the given tickets
 	 */
 	@Nonnull public Player give(@Nonnull Iterable<Ticket> tickets) {
-		var x = this;
-		for (Ticket t : tickets) x = x.give(t);
-		return x;
+		int[] counts = this.counts;
+		for (Ticket t : tickets) {
+			int ordinal = t.ordinal();
+			// like the map this player was made from, only tickets in it can be given
+			if ((present & 1 << ordinal) == 0) continue;
+			if (counts == this.counts) counts = counts.clone();
+			counts[ordinal]++;
+		}
+		return counts == this.counts ? this : new Player(piece, counts, present, location, null);
 	}
 	/**
 	 * @param ticket the ticket
 	 * @return a new player with one more of the given ticket
 	 */
 	@Nonnull public Player give(@Nonnull Ticket ticket) {
-		var map = new HashMap<>(tickets);
-		map.computeIfPresent(ticket, (t, n) -> n + 1);
-		return new Player(piece, ImmutableMap.copyOf(map), location);
+		if ((present & 1 << ticket.ordinal()) == 0) return this;
+		int[] counts = this.counts.clone();
+		counts[ticket.ordinal()]++;
+		return new Player(piece, counts, present, location, null);
 	}
 	/**
-	 * See {@link #use(Ticket)}
+	 * See {@link #use(Ticket)}; allocates a single new player for all the tickets.
 	 *
 	 * @param tickets the tickets
 	 * @return a new player with one less of the given tickets
 	 */
 	@Nonnull public Player use(@Nonnull Iterable<Ticket> tickets) {
-		var x = this;
-		for (Ticket t : tickets) x = x.use(t);
-		return x;
+		int[] counts = this.counts;
+		for (Ticket t : tickets) {
+			int ordinal = t.ordinal();
+			if (counts[ordinal] == 0) throw new IllegalArgumentException("No " + t + " remaining");
+			if (counts == this.counts) counts = counts.clone();
+			counts[ordinal]--;
+		}
+		return counts == this.counts ? this : new Player(piece, counts, present, location, null);
 	}
 	/**
 	 * @param ticket the ticket
@@ -98,22 +149,26 @@ public final class Player {
 	@Nonnull public Player use(@Nonnull Ticket ticket) {
 		if (!has(ticket))
 			throw new IllegalArgumentException("No " + ticket + " remaining");
-		var map = new HashMap<>(tickets);
-		map.computeIfPresent(ticket, (t, n) -> n - 1);
-		return new Player(piece, ImmutableMap.copyOf(map), location);
+		int[] counts = this.counts.clone();
+		counts[ticket.ordinal()]--;
+		return new Player(piece, counts, present, location, null);
 	}
 	/**
 	 * @param newLocation the location
 	 * @return a new player at the given location
 	 */
-	@Nonnull public Player at(int newLocation) { return new Player(piece, tickets, newLocation); }
+	@Nonnull public Player at(int newLocation) {
+		return new Player(piece, counts, present, newLocation, tickets);
+	}
 	@Override public boolean equals(Object o) {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
 		Player that = (Player) o;
-		return location == that.location && piece == that.piece &&
-				Objects.equals(tickets, that.tickets);
+		return location == that.location && piece == that.piece && present == that.present &&
+				Arrays.equals(counts, that.counts);
+	}
+	@Override public int hashCode() {
+		return 31 * (31 * (31 * piece.hashCode() + location) + present) + Arrays.hashCode(counts);
 	}
-	@Override public int hashCode() { return Objects.hash(piece, tickets, location); }
-	@Override public String toString() { return piece + "@" + location + "(" + tickets + ")"; }
+	@Override public String toString() { return piece + "@" + location + "(" + tickets() + ")"; }
 }
@@ -0,0 +1,65 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nonnull;
+
+/**
+ * MrX's travel log as a persistent list: {@link #append(LogEntry)} makes one node pointing at
+ * the log before it, so every state of a game shares the entries of the states it came from
+ * instead of copying them.
+ * <br>
+ * {@link #asList()} is built on first use and cached, so states whose log is never asked for
+ * never pay for it.
+ */
+final class TravelLog {
+
+	/**
+	 * The log before MrX's first move
+	 */
+	static final TravelLog EMPTY = new TravelLog(null, null, 0);
+
+	private final TravelLog previous;
+	private final LogEntry last;
+	private final int size;
+	// racy but safe like String.hashCode, every thread builds an equal immutable list
+	private ImmutableList<LogEntry> list;
+
+	private TravelLog(TravelLog previous, LogEntry last, int size) {
+		this.previous = previous;
+		this.last = last;
+		this.size = size;
+		if (size == 0) list = ImmutableList.of();
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	int size() { return size; }
+
+	/**
+	 * @param entry the entry
+	 * @return a log with the entry after the entries of this one, which is left unchanged
+	 */
+	@Nonnull TravelLog append(@Nonnull LogEntry entry) { return new TravelLog(this, entry, size + 1); }
+
+	/**
+	 * @return the entries, oldest first
+	 */
+	@Nonnull ImmutableList<LogEntry> asList() {
+		ImmutableList<LogEntry> list = this.list;
+		if (list == null) {
+			LogEntry[] entries = new LogEntry[size];
+			TravelLog log = this;
+			// stop early at a log that already has its list
+			while (log.list == null) {
+				entries[log.size - 1] = log.last;
+				log = log.previous;
+			}
+			ImmutableList<LogEntry> shared = log.list;
+			for (int i = 0; i < shared.size(); i++) entries[i] = shared.get(i);
+			this.list = list = ImmutableList.copyOf(entries);
+		}
+		return list;
+	}
+}
@@ -8,7 +8,6 @@ import javafx.animation.TranslateTransition;
 import javafx.geometry.Point2D;
 import javafx.scene.Node;
 import javafx.scene.effect.BlendMode;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
@@ -16,7 +15,6 @@ import javafx.scene.shape.Circle;
 import javafx.util.Duration;
 import uk.ac.bris.cs.fxkit.interpolator.DecelerateInterpolator;
 import uk.ac.bris.cs.scotlandyard.ResourceManager;
-import uk.ac.bris.cs.scotlandyard.ResourceManager.ImageResource;
 import uk.ac.bris.cs.scotlandyard.model.Piece;
 import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
@@ -37,13 +35,16 @@ public class MapPreviewPane extends Pane {
 		ImageView mapView = new ImageView();
 		Pane shadow = new Pane();
 		getChildren().addAll(mapView, shadow, annotations);
-		Image image = manager.getImage(ImageResource.MAP);
-		mapView.setImage(image);
+		// the preview stretched to full size, so annotations use full size coordinates
+		MapPyramid map = manager.getMapPyramid();
+		mapView.imageProperty().bind(manager.mapPreviewProperty());
+		mapView.setFitWidth(map.width());
+		mapView.setFitHeight(map.height());
 		shadow.setStyle("-fx-background-color: rgba(0,0, 0, 0.5)");
-		setMinSize(image.getWidth(), image.getHeight());
+		setMinSize(map.width(), map.height());
 //		resize(image.getWidth(), image.getHeight());
-		shadow.setPrefSize(image.getWidth(), image.getHeight());
-		annotations.setPrefSize(image.getWidth(), image.getHeight());
+		shadow.setPrefSize(map.width(), map.height());
+		annotations.setPrefSize(map.width(), map.height());
 		mask.setBlendMode(BlendMode.OVERLAY);
 		shadow.getChildren().add(mask);
 	}
@@ -0,0 +1,216 @@
+package uk.ac.bris.cs.scotlandyard.ui;
+
+import com.google.common.collect.ImmutableList;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * A mipmap pyramid of tiles over a compressed image, decoded on demand so the full size image
+ * never has to be in memory.
+ * <br>
+ * Level 0 is full size and every level above halves both sides, up to {@link #previewLevel()},
+ * the first that fits in two tiles either way. Each level is cut into {@link #tileSize()}
+ * squares, smaller at the right and bottom edges. Levels are decoded with nearest neighbour
+ * subsampling straight from the compressed bytes; a JPEG can only be decoded from the top, so
+ * {@link #decodeRow(int, int, int, int)} decodes the tiles of a row together.
+ * <br>
+ * Not required for the coursework.
+ */
+public final class MapPyramid {
+
+	/**
+	 * Decoded pixels of one tile
+	 */
+	public static final class Tile {
+		public final int level, column, row;
+		/**
+		 * The size of the tile in pixels of its level
+		 */
+		public final int width, height;
+		/**
+		 * The pixels in ARGB, row by row
+		 */
+		@Nonnull public final int[] argb;
+
+		Tile(int level, int column, int row, int width, int height, int[] argb) {
+			this.level = level;
+			this.column = column;
+			this.row = row;
+			this.width = width;
+			this.height = height;
+			this.argb = argb;
+		}
+	}
+
+	private final byte[] image;
+	private final int tileSize;
+	private final int width, height;
+	private final int previewLevel;
+
+	/**
+	 * Reads the size of the image; nothing is decoded until a tile is asked for.
+	 *
+	 * @param image the compressed image, any format ImageIO reads
+	 * @param tileSize the side of a tile in pixels
+	 * @throws IOException if the image can't be read
+	 */
+	public MapPyramid(@Nonnull byte[] image, int tileSize) throws IOException {
+		if (tileSize < 1) throw new IllegalArgumentException("Tile size must be positive: " + tileSize);
+		this.image = image;
+		this.tileSize = tileSize;
+		ImageReader reader = reader();
+		try {
+			this.width = reader.getWidth(0);
+			this.height = reader.getHeight(0);
+		} finally {
+			reader.dispose();
+		}
+		int level = 0;
+		while (Math.max(width(level), height(level)) > 2 * tileSize) level++;
+		this.previewLevel = level;
+	}
+
+	private ImageReader reader() throws IOException {
+		ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(image));
+		var readers = ImageIO.getImageReaders(input);
+		if (!readers.hasNext()) throw new IOException("No reader for image");
+		ImageReader reader = readers.next();
+		reader.setInput(input, true, true);
+		return reader;
+	}
+
+	/**
+	 * @return the width of the full size image
+	 */
+	public int width() { return width; }
+
+	/**
+	 * @return the height of the full size image
+	 */
+	public int height() { return height; }
+
+	/**
+	 * @return the side of a tile in pixels
+	 */
+	public int tileSize() { return tileSize; }
+
+	/**
+	 * @return the smallest level, decoded whole by {@link #decodePreview()}
+	 */
+	public int previewLevel() { return previewLevel; }
+
+	/**
+	 * @param level the level
+	 * @return how many full size pixels one pixel of the level covers along each side
+	 */
+	public static int scale(int level) { return 1 << level; }
+
+	/**
+	 * @param level the level
+	 * @return the width of the level in its own pixels
+	 */
+	public int width(int level) { return (width + scale(level) - 1) >> level; }
+
+	/**
+	 * @param level the level
+	 * @return the height of the level in its own pixels
+	 */
+	public int height(int level) { return (height + scale(level) - 1) >> level; }
+
+	/**
+	 * @param level the level
+	 * @return the number of tile columns of the level
+	 */
+	public int columns(int level) { return (width(level) + tileSize - 1) / tileSize; }
+
+	/**
+	 * @param level the level
+	 * @return the number of tile rows of the level
+	 */
+	public int rows(int level) { return (height(level) + tileSize - 1) / tileSize; }
+
+	/**
+	 * @param scale the on screen size of one full size pixel, e.g. 0.25 when zoomed out 4 times
+	 * @return the smallest level with at least one pixel per screen pixel, at most
+	 * {@link #previewLevel()}
+	 */
+	public int levelFor(double scale) {
+		if (!(scale > 0)) return previewLevel;
+		int level = (int) Math.floor(Math.log(1 / scale) / Math.log(2));
+		return Math.max(0, Math.min(previewLevel, level));
+	}
+
+	/**
+	 * @return the whole of {@link #previewLevel()} as one tile
+	 * @throws IOException if the image can't be decoded
+	 */
+	@Nonnull public Tile decodePreview() throws IOException {
+		int level = previewLevel;
+		return decode(level, 0, 0, new Rectangle(0, 0, width, height), width(level), height(level));
+	}
+
+	/**
+	 * Decodes a run of tiles of one row in a single pass.
+	 *
+	 * @param level the level
+	 * @param row the tile row
+	 * @param firstColumn the first tile column
+	 * @param lastColumn the last tile column, inclusive
+	 * @return the tiles from first to last column
+	 * @throws IOException if the image can't be decoded
+	 */
+	@Nonnull public ImmutableList<Tile> decodeRow(int level, int row,
+	                                              int firstColumn, int lastColumn) throws IOException {
+		if (level < 0 || level > previewLevel || row < 0 || row >= rows(level)
+				|| firstColumn < 0 || lastColumn >= columns(level) || firstColumn > lastColumn)
+			throw new IllegalArgumentException(String.format(
+					"No tiles %d..%d of row %d at level %d", firstColumn, lastColumn, row, level));
+		int scale = scale(level);
+		int x = firstColumn * tileSize, y = row * tileSize;
+		int bandWidth = Math.min(width(level), (lastColumn + 1) * tileSize) - x;
+		int bandHeight = Math.min(height(level), y + tileSize) - y;
+		var source = new Rectangle(x * scale, y * scale,
+				Math.min(width - x * scale, bandWidth * scale),
+				Math.min(height - y * scale, bandHeight * scale));
+		Tile band = decode(level, firstColumn, row, source, bandWidth, bandHeight);
+		if (firstColumn == lastColumn) return ImmutableList.of(band);
+
+		var tiles = ImmutableList.<Tile>builder();
+		for (int column = firstColumn; column <= lastColumn; column++) {
+			int left = (column - firstColumn) * tileSize;
+			int tileWidth = Math.min(tileSize, bandWidth - left);
+			int[] argb = new int[tileWidth * bandHeight];
+			for (int line = 0; line < bandHeight; line++)
+				System.arraycopy(band.argb, line * bandWidth + left, argb, line * tileWidth, tileWidth);
+			tiles.add(new Tile(level, column, row, tileWidth, bandHeight, argb));
+		}
+		return tiles.build();
+	}
+
+	private Tile decode(int level, int column, int row, Rectangle source,
+	                    int expectedWidth, int expectedHeight) throws IOException {
+		ImageReader reader = reader();
+		try {
+			ImageReadParam param = reader.getDefaultReadParam();
+			param.setSourceRegion(source);
+			param.setSourceSubsampling(scale(level), scale(level), 0, 0);
+			BufferedImage decoded = reader.read(0, param);
+			int w = decoded.getWidth(), h = decoded.getHeight();
+			if (w != expectedWidth || h != expectedHeight)
+				throw new IOException(String.format("Decoded %dx%d, expected %dx%d",
+						w, h, expectedWidth, expectedHeight));
+			return new Tile(level, column, row, w, h, decoded.getRGB(0, 0, w, h, null, 0, w));
+		} finally {
+			reader.dispose();
+		}
+	}
+}
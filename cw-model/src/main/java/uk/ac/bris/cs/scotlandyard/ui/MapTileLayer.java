@@ -0,0 +1,177 @@
+package uk.ac.bris.cs.scotlandyard.ui;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nonnull;
+
+import javafx.application.Platform;
+import javafx.geometry.Bounds;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.Pane;
+
+/**
+ * Shows the tiles of a {@link MapPyramid} covering the viewport, at the level matching the
+ * zoom, laid out in full size map coordinates. Meant to sit over an image of the
+ * {@link MapPyramid#decodePreview() preview} stretched to the full size, which shows through
+ * until the tiles arrive and is all that's needed when zoomed out.
+ * <br>
+ * Tiles are decoded one row at a time on a background thread shared by every layer and kept in
+ * a cache bounded by pixel count, so zooming back in doesn't decode again.
+ * <br>
+ * Not required for the coursework.
+ */
+public class MapTileLayer extends Pane {
+
+	// 32M pixels, 128 MB as images
+	private static final long CACHE_PIXELS = 32L << 20;
+	// shared by every layer, so a new game window doesn't leave a thread behind
+	private static final ExecutorService DECODER = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+			.setNameFormat("map-tiles-%d")
+			.setDaemon(true)
+			.build());
+
+	private final MapPyramid pyramid;
+	private final Cache<Long, Image> cache = CacheBuilder.newBuilder()
+			.maximumWeight(CACHE_PIXELS)
+			.weigher((Long key, Image image) -> (int) (image.getWidth() * image.getHeight()))
+			.build();
+
+	// FX thread only
+	private final Map<Long, ImageView> shown = new HashMap<>();
+	private final Set<Long> pending = new HashSet<>();
+	private boolean failed;
+	// the tiles of the last viewport
+	private int firstColumn, lastColumn, firstRow, lastRow;
+	// read by the decoder to skip rows of a level no longer shown
+	private volatile int level = -1;
+
+	public MapTileLayer(@Nonnull MapPyramid pyramid) {
+		this.pyramid = pyramid;
+		setPickOnBounds(false);
+		setMouseTransparent(true);
+	}
+
+	/**
+	 * @param tile decoded pixels
+	 * @return the pixels as an image; safe to call off the FX thread
+	 */
+	@Nonnull public static Image toImage(@Nonnull MapPyramid.Tile tile) {
+		var image = new WritableImage(tile.width, tile.height);
+		image.getPixelWriter().setPixels(0, 0, tile.width, tile.height,
+				PixelFormat.getIntArgbInstance(), tile.argb, 0, tile.width);
+		return image;
+	}
+
+	private static long key(int level, int column, int row) {
+		return (long) level << 48 | (long) row << 24 | column;
+	}
+
+	/**
+	 * Shows the tiles for a viewport, decoding the missing ones in the background. Call on the
+	 * FX thread whenever the viewport or zoom changes.
+	 *
+	 * @param viewport the visible part of the map, in full size map coordinates
+	 * @param scale the on screen size of one full size pixel
+	 */
+	public void show(@Nonnull Bounds viewport, double scale) {
+		int level = pyramid.levelFor(scale);
+		if (level != this.level) {
+			this.level = level;
+			shown.clear();
+			getChildren().clear();
+		}
+		if (failed || level == pyramid.previewLevel()) return;
+
+		int span = pyramid.tileSize() * MapPyramid.scale(level);
+		firstColumn = clamp((int) Math.floor(viewport.getMinX() / span), pyramid.columns(level));
+		lastColumn = clamp((int) Math.floor(viewport.getMaxX() / span), pyramid.columns(level));
+		firstRow = clamp((int) Math.floor(viewport.getMinY() / span), pyramid.rows(level));
+		lastRow = clamp((int) Math.floor(viewport.getMaxY() / span), pyramid.rows(level));
+
+		shown.entrySet().removeIf(entry -> {
+			if (visible(entry.getKey())) return false;
+			getChildren().remove(entry.getValue());
+			return true;
+		});
+
+		for (int row = firstRow; row <= lastRow; row++) {
+			int runStart = -1;
+			for (int column = firstColumn; column <= lastColumn + 1; column++) {
+				boolean missing = false;
+				if (column <= lastColumn) {
+					long key = key(level, column, row);
+					Image cached = cache.getIfPresent(key);
+					if (cached != null && !shown.containsKey(key)) place(key, cached, level, column, row);
+					missing = cached == null && !pending.contains(key);
+				}
+				if (missing && runStart < 0) runStart = column;
+				if (!missing && runStart >= 0) {
+					request(level, row, runStart, column - 1);
+					runStart = -1;
+				}
+			}
+		}
+	}
+
+	private boolean visible(long key) {
+		int row = (int) (key >>> 24 & 0xFFFFFF), column = (int) (key & 0xFFFFFF);
+		return row >= firstRow && row <= lastRow && column >= firstColumn && column <= lastColumn;
+	}
+
+	private static int clamp(int value, int count) { return Math.max(0, Math.min(count - 1, value)); }
+
+	private void request(int level, int row, int firstColumn, int lastColumn) {
+		for (int column = firstColumn; column <= lastColumn; column++) pending.add(key(level, column, row));
+		DECODER.execute(() -> {
+			try {
+				if (level == this.level) {
+					for (var tile : pyramid.decodeRow(level, row, firstColumn, lastColumn))
+						cache.put(key(level, tile.column, row), toImage(tile));
+				}
+			} catch (IOException | RuntimeException e) {
+				Platform.runLater(() -> {
+					if (!failed) Utils.handleNonFatalException(e, "Unable to load map tiles");
+					failed = true;
+				});
+			} finally {
+				Platform.runLater(() -> arrived(level, row, firstColumn, lastColumn));
+			}
+		});
+	}
+
+	private void arrived(int level, int row, int firstColumn, int lastColumn) {
+		for (int column = firstColumn; column <= lastColumn; column++) {
+			long key = key(level, column, row);
+			pending.remove(key);
+			Image image = cache.getIfPresent(key);
+			// a tile that scrolled out is only cached, the next show places it if needed
+			if (image != null && level == this.level && visible(key) && !shown.containsKey(key))
+				place(key, image, level, column, row);
+		}
+	}
+
+	private void place(long key, Image image, int level, int column, int row) {
+		int scale = MapPyramid.scale(level), span = pyramid.tileSize() * scale;
+		var view = new ImageView(image);
+		view.setSmooth(true);
+		view.setLayoutX(column * span);
+		view.setLayoutY(row * span);
+		view.setFitWidth(image.getWidth() * scale);
+		view.setFitHeight(image.getHeight() * scale);
+		getChildren().add(view);
+		shown.put(key, view);
+	}
+}
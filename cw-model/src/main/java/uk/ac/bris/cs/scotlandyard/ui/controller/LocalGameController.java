@@ -186,7 +186,7 @@ public final class LocalGameController extends BaseGameController {
 			var modelFactory = (new MyModelFactory());
 			var model = modelFactory.build(new GameSetup(
 							setup.graphProperty().get(),
-							ImmutableList.copyOf(setup.revealRounds())),
+							ImmutableList.copyOf(setup.revealRounds())).intern(),
 					setup.mrX().asPlayer(),
 					setup.detectives().stream()
 							.map(PlayerProperty::asPlayer)
@@ -26,11 +26,11 @@ import io.atlassian.fugue.Option;
 import io.atlassian.fugue.Unit;
 import javafx.animation.Interpolator;
 import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
 import javafx.fxml.FXML;
 import javafx.geometry.Point2D;
 import javafx.scene.Parent;
 import javafx.scene.effect.BlendMode;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.Pane;
@@ -47,7 +47,6 @@ import uk.ac.bris.cs.fxkit.BindFXML;
 import uk.ac.bris.cs.fxkit.Controller;
 import uk.ac.bris.cs.fxkit.interpolator.DecelerateInterpolator;
 import uk.ac.bris.cs.scotlandyard.ResourceManager;
-import uk.ac.bris.cs.scotlandyard.ResourceManager.ImageResource;
 import uk.ac.bris.cs.scotlandyard.model.Ai;
 import uk.ac.bris.cs.scotlandyard.model.Board;
 import uk.ac.bris.cs.scotlandyard.model.Model;
@@ -59,6 +58,8 @@ import uk.ac.bris.cs.scotlandyard.model.Move.Visitor;
 import uk.ac.bris.cs.scotlandyard.model.Piece;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
 import uk.ac.bris.cs.scotlandyard.ui.GameControl;
+import uk.ac.bris.cs.scotlandyard.ui.MapPyramid;
+import uk.ac.bris.cs.scotlandyard.ui.MapTileLayer;
 import uk.ac.bris.cs.scotlandyard.ui.Utils;
 import uk.ac.bris.cs.scotlandyard.ui.controller.NotificationController.NotificationBuilder;
 import uk.ac.bris.cs.scotlandyard.ui.model.BoardViewProperty;
@@ -127,9 +128,20 @@ import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
 			}
 		});
 		historyPane.visibleProperty().bind(view.historyProperty());
-		Image image = manager.getImage(ImageResource.MAP);
-		mapView.setImage(image);
-		lockSize(image.getWidth(), image.getHeight(), root, historyPane, mask);
+		// the preview stretched to full size shows at once, tiles stream in over it when zoomed
+		MapPyramid map = manager.getMapPyramid();
+		mapView.imageProperty().bind(manager.mapPreviewProperty());
+		mapView.setFitWidth(map.width());
+		mapView.setFitHeight(map.height());
+		// Map.fxml preserves the ratio, which would fit the rounded preview short of the tiles
+		mapView.setPreserveRatio(false);
+		MapTileLayer tiles = new MapTileLayer(map);
+		root.getChildren().add(root.getChildren().indexOf(mapView) + 1, tiles);
+		InvalidationListener viewportChanged = o ->
+				tiles.show(gesturePane.getTargetViewport(), gesturePane.getCurrentScale());
+		gesturePane.targetViewportProperty().addListener(viewportChanged);
+		gesturePane.currentScaleProperty().addListener(viewportChanged);
+		lockSize(map.width(), map.height(), root, historyPane, mask);
 		Platform.runLater(() -> gesturePane.zoomTo(0, Point2D.ZERO));
 	}
 
@@ -0,0 +1,107 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.headless.HeadlessRunner.RANDOM;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.YELLOW;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.STANDARD24ROUNDS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests the headless runner plays complete, reproducible games.
+ */
+public class HeadlessRunnerTest {
+
+	// always picks the first move, so games only depend on their start positions
+	private static final class FirstMoveAi implements Ai {
+		@Nonnull @Override public String name() { return "First"; }
+
+		@Nonnull @Override public Move pickMove(@Nonnull Board board, @Nonnull AtomicBoolean terminate) {
+			return board.getAvailableMoves().asList().get(0);
+		}
+	}
+
+	private static HeadlessRunner runner(Player mrX, Supplier<Ai> mrXAi) throws IOException {
+		return new HeadlessRunner(new MyGameStateFactory(),
+				new GameSetup(ScotlandYard.standardGraph(), STANDARD24ROUNDS),
+				mrX,
+				ImmutableList.of(new Player(RED, defaultDetectiveTickets(), RANDOM),
+						new Player(BLUE, defaultDetectiveTickets(), 94),
+						new Player(YELLOW, defaultDetectiveTickets(), RANDOM)),
+				mrXAi, FirstMoveAi::new);
+	}
+
+	@Test public void testStartPositionsAreSeededAndDistinct() throws IOException {
+		var runner = runner(new Player(MRX, defaultMrXTickets(), RANDOM), FirstMoveAi::new);
+		for (int seed = 0; seed < 100; seed++) {
+			var players = runner.startPositions(seed);
+			assertThat(players).isEqualTo(runner.startPositions(seed));
+			assertThat(players.get(0).location()).isEqualTo(ScotlandYard.generateMrXLocation(seed));
+			assertThat(players.get(2).location()).isEqualTo(94);
+			var detectiveLocations = new HashSet<Integer>();
+			for (Player player : players.subList(1, players.size()))
+				detectiveLocations.add(player.location());
+			assertThat(detectiveLocations).hasSize(3);
+		}
+	}
+
+	@Test public void testPlaysEveryGameToTheEnd() throws Exception {
+		var result = runner(new Player(MRX, defaultMrXTickets(), RANDOM), FirstMoveAi::new).run(50, 4);
+		assertThat(result.games).isEqualTo(50);
+		assertThat(result.mrXWins + result.detectiveWins).isEqualTo(50);
+		assertThat(result.rounds.count).isEqualTo(50);
+		assertThat(result.rounds.max).isLessThanOrEqualTo(STANDARD24ROUNDS.size());
+		assertThat(result.mrXThinkMicros.count + result.detectiveThinkMicros.count)
+				.isEqualTo(Math.round(result.moves.mean * result.moves.count));
+	}
+
+	@Test public void testResultsDoNotDependOnThreadCount() throws Exception {
+		var runner = runner(new Player(MRX, defaultMrXTickets(), RANDOM), FirstMoveAi::new);
+		var single = runner.run(30, 1);
+		var parallel = runner.run(30, 3);
+		assertThat(parallel.mrXWins).isEqualTo(single.mrXWins);
+		assertThat(parallel.rounds.toString()).isEqualTo(single.rounds.toString());
+		assertThat(parallel.moves.toString()).isEqualTo(single.moves.toString());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testInvalidMoveFailsTheBatch() throws Exception {
+		Supplier<Ai> cheat = () -> new Ai() {
+			@Nonnull @Override public String name() { return "Cheat"; }
+
+			@Nonnull @Override public Move pickMove(@Nonnull Board board, @Nonnull AtomicBoolean terminate) {
+				return new Move.SingleMove(MRX, 1, ScotlandYard.Ticket.TAXI, 8);
+			}
+		};
+		runner(new Player(MRX, defaultMrXTickets(), 106), cheat).run(2, 1);
+	}
+
+	@Test public void testRandomAiIsInTheServiceIndex() {
+		boolean found = false;
+		for (Ai ai : ServiceLoader.load(Ai.class)) found |= ai instanceof HeadlessRunner.RandomAi;
+		assertThat(found).isTrue();
+	}
+}
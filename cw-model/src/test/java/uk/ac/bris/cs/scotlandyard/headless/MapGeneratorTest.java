@@ -0,0 +1,81 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.Graphs;
+import com.google.common.graph.ImmutableValueGraph;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests generated maps can be read and look like the standard one.
+ */
+public class MapGeneratorTest {
+
+	private static long edgesWith(ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph,
+	                              Transport transport) {
+		return graph.edges().stream()
+				.filter(edge -> graph.edgeValueOrDefault(edge, ImmutableSet.of()).contains(transport))
+				.count();
+	}
+
+	@Test public void testGraphIsReadable() {
+		var generator = new MapGenerator(1000, 1);
+		var graph = ScotlandYard.readGraph(generator.graph());
+		assertThat(graph.nodes()).hasSize(1000);
+		assertThat(Graphs.hasCycle(graph.asGraph())).isTrue();
+		for (Transport transport : Transport.values())
+			assertThat(edgesWith(graph, transport)).isGreaterThan(0L);
+	}
+
+	@Test public void testLayersAreSizedLikeTheStandardMap() {
+		var graph = ScotlandYard.readGraph(new MapGenerator(10_000, 2).graph());
+		long taxi = edgesWith(graph, Transport.TAXI);
+		long bus = edgesWith(graph, Transport.BUS);
+		long underground = edgesWith(graph, Transport.UNDERGROUND);
+		// the standard map has 1.73, 0.50 and 0.10 edges per node
+		assertThat(taxi).isBetween(14_000L, 19_000L);
+		assertThat(bus).isBetween(4_000L, 6_000L);
+		assertThat(underground).isBetween(600L, 1_200L);
+	}
+
+	@Test public void testConnectedByTaxi() {
+		var graph = ScotlandYard.readGraph(new MapGenerator(5000, 3).graph());
+		var seen = new HashSet<Integer>();
+		var queue = new ArrayDeque<Integer>();
+		queue.add(1);
+		seen.add(1);
+		while (!queue.isEmpty()) {
+			int node = queue.poll();
+			for (int neighbour : graph.adjacentNodes(node))
+				if (graph.edgeValueOrDefault(node, neighbour, ImmutableSet.of()).contains(Transport.TAXI)
+						&& seen.add(neighbour)) queue.add(neighbour);
+		}
+		assertThat(seen).hasSize(5000);
+	}
+
+	@Test public void testPositionsCoverEveryNode() {
+		var lines = new MapGenerator(300, 4).positions().lines().toArray(String[]::new);
+		assertThat(lines[0]).isEqualTo("300");
+		assertThat(lines.length).isEqualTo(301);
+		for (int node = 1; node <= 300; node++) {
+			String[] line = lines[node].split(" ");
+			assertThat(Integer.parseInt(line[0])).isEqualTo(node);
+			assertThat(Integer.parseInt(line[1])).isGreaterThan(0);
+			assertThat(Integer.parseInt(line[2])).isGreaterThan(0);
+		}
+	}
+
+	@Test public void testSeededMapsRepeat() {
+		assertThat(new MapGenerator(2000, 5).graph()).isEqualTo(new MapGenerator(2000, 5).graph());
+		assertThat(new MapGenerator(2000, 5).positions()).isEqualTo(new MapGenerator(2000, 5).positions());
+		assertThat(new MapGenerator(2000, 5).graph()).isNotEqualTo(new MapGenerator(2000, 6).graph());
+	}
+}
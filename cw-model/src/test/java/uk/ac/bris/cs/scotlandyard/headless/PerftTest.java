@@ -0,0 +1,110 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.BitboardGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.LogEntry;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.STANDARD24ROUNDS;
+
+/**
+ * Tests perft counts agree between implementations and the differential walk finds a planted
+ * bug.
+ */
+public class PerftTest {
+
+	// hides one move from every position after the first ply
+	private static final class DropsAMove implements GameState {
+		private final GameState state;
+		private final int ply;
+
+		DropsAMove(GameState state, int ply) {
+			this.state = state;
+			this.ply = ply;
+		}
+
+		@Nonnull @Override public GameSetup getSetup() { return state.getSetup(); }
+		@Nonnull @Override public ImmutableSet<Piece> getPlayers() { return state.getPlayers(); }
+		@Nonnull @Override public Optional<Integer> getDetectiveLocation(Detective detective) {
+			return state.getDetectiveLocation(detective);
+		}
+		@Nonnull @Override public Optional<TicketBoard> getPlayerTickets(Piece piece) {
+			return state.getPlayerTickets(piece);
+		}
+		@Nonnull @Override public ImmutableList<LogEntry> getMrXTravelLog() { return state.getMrXTravelLog(); }
+		@Nonnull @Override public ImmutableSet<Piece> getWinner() { return state.getWinner(); }
+		@Nonnull @Override public ImmutableSet<Move> getAvailableMoves() {
+			var moves = state.getAvailableMoves();
+			return ply == 0 || moves.isEmpty() ? moves : ImmutableSet.copyOf(moves.asList().subList(1, moves.size()));
+		}
+		@Nonnull @Override public GameState advance(Move move) { return new DropsAMove(state.advance(move), ply + 1); }
+	}
+
+	private static GameSetup setup() throws IOException {
+		return new GameSetup(ScotlandYard.standardGraph(), STANDARD24ROUNDS);
+	}
+
+	@Test public void testImplementationsCountTheSame() throws IOException {
+		var perft = new Perft(2);
+		for (int seed = 0; seed < 3; seed++) {
+			var mine = Perft.start(new MyGameStateFactory(), setup(), 3, seed);
+			var bitboard = Perft.start(new BitboardGameStateFactory(), setup(), 3, seed);
+			for (int depth = 0; depth <= 3; depth++)
+				assertThat(perft.count(mine, depth)).isEqualTo(perft.count(bitboard, depth));
+		}
+	}
+
+	@Test public void testShallowCountsMatchAvailableMoves() throws IOException {
+		var state = Perft.start(new MyGameStateFactory(), setup(), 5, 1);
+		var perft = new Perft(1);
+		assertThat(perft.count(state, 0)).isEqualTo(1L);
+		assertThat(perft.count(state, 1)).isEqualTo((long) state.getAvailableMoves().size());
+	}
+
+	@Test public void testParallelCountMatchesSequential() throws IOException {
+		var state = Perft.start(new MyGameStateFactory(), setup(), 2, 7);
+		assertThat(new Perft(4).count(state, 4)).isEqualTo(new Perft(1).count(state, 4));
+	}
+
+	@Test public void testSplitSumsToCount() throws IOException {
+		var state = Perft.start(new MyGameStateFactory(), setup(), 2, 3);
+		var perft = new Perft(2);
+		var split = perft.split(state, 3);
+		assertThat(split.keySet().equals(state.getAvailableMoves())).isTrue();
+		assertThat(split.values().stream().mapToLong(Long::longValue).sum()).isEqualTo(perft.count(state, 3));
+	}
+
+	@Test public void testDiffOfEqualImplementationsIsEmpty() throws IOException {
+		for (int seed = 0; seed < 3; seed++) {
+			var divergence = Perft.diff(Perft.start(new MyGameStateFactory(), setup(), 2, seed),
+					Perft.start(new BitboardGameStateFactory(), setup(), 2, seed), 3);
+			assertThat(divergence.isPresent()).isFalse();
+		}
+	}
+
+	@Test public void testDiffFindsFirstDivergence() throws IOException {
+		var state = Perft.start(new MyGameStateFactory(), setup(), 2, 5);
+		var divergence = Perft.diff(state, new DropsAMove(state, 0), 3);
+		assertThat(divergence.isPresent()).isTrue();
+		// the root agrees, so the first divergence is one move in, with one move missing
+		assertThat(divergence.get().path).hasSize(1);
+		assertThat(divergence.get().onlyFirst).hasSize(1);
+		assertThat(divergence.get().onlySecond).hasSize(0);
+	}
+}
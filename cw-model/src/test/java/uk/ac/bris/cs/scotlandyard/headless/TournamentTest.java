@@ -0,0 +1,128 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.headless.HeadlessRunner.RANDOM;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.STANDARD24ROUNDS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests match scoring, the SPRT and colour swapped matches.
+ */
+public class TournamentTest {
+
+	private static final class FirstMoveAi implements Ai {
+		@Nonnull @Override public String name() { return "First"; }
+
+		@Nonnull @Override public Move pickMove(@Nonnull Board board, @Nonnull AtomicBoolean terminate) {
+			return board.getAvailableMoves().asList().get(0);
+		}
+	}
+
+	private static final class MrXOnlyAi implements Ai {
+		@Nonnull @Override public String name() { return "MrX only"; }
+
+		@Nonnull @Override public Move pickMove(@Nonnull Board board, @Nonnull AtomicBoolean terminate) {
+			var moves = board.getAvailableMoves().asList();
+			if (moves.get(0).commencedBy().isDetective())
+				throw new UnsupportedOperationException("Can't play the detectives");
+			return moves.get(0);
+		}
+	}
+
+	private static Tournament tournament() throws IOException {
+		return new Tournament(new MyGameStateFactory(),
+				new GameSetup(ScotlandYard.standardGraph(), STANDARD24ROUNDS),
+				new Player(MRX, defaultMrXTickets(), RANDOM),
+				ImmutableList.of(new Player(RED, defaultDetectiveTickets(), RANDOM),
+						new Player(BLUE, defaultDetectiveTickets(), RANDOM)),
+				3);
+	}
+
+	@Test public void testScoresPairsFromTheFirstAisPointOfView() {
+		var result = new MatchResult("a", "b");
+		result.add(true, false);
+		result.add(true, true);
+		result.add(false, true);
+		result.add(true, false);
+		assertThat(result.pairs()).isEqualTo(4);
+		assertThat(result.firstWinsAsMrX()).isEqualTo(3);
+		assertThat(result.secondWinsAsMrX()).isEqualTo(2);
+		assertThat(result.score()).isEqualTo(0.625);
+		assertThat(result.elo() > 0).isTrue();
+		assertThat(Math.abs(MatchResult.expectedScore(result.elo()) - result.score()) < 1e-9).isTrue();
+	}
+
+	@Test public void testSprtAcceptsTheRightHypothesis() {
+		var sprt = new Sprt(0, 50, 0.05, 0.05);
+		var stronger = new MatchResult("a", "b");
+		var weaker = new MatchResult("a", "b");
+		for (int i = 0; i < 200; i++) {
+			stronger.add(true, i % 3 == 0);
+			weaker.add(i % 3 == 0, true);
+		}
+		assertThat(sprt.verdict(stronger)).isEqualTo(Sprt.Verdict.H1);
+		assertThat(sprt.verdict(weaker)).isEqualTo(Sprt.Verdict.H0);
+		assertThat(sprt.verdict(new MatchResult("a", "b"))).isEqualTo(Sprt.Verdict.CONTINUE);
+	}
+
+	@Test public void testMirroredMatchOfEqualAisIsEven() throws Exception {
+		var result = tournament().match(FirstMoveAi::new, FirstMoveAi::new, 20,
+				new Sprt(0, 50, 0.05, 0.05));
+		assertThat(result.pairs()).isEqualTo(20);
+		assertThat(result.score()).isEqualTo(0.5);
+		assertThat(result.firstWinsAsMrX()).isEqualTo(result.secondWinsAsMrX());
+		assertThat(result.verdict()).isEqualTo(Sprt.Verdict.CONTINUE);
+	}
+
+	@Test public void testRoundRobinSkipsMatchesAnAiCantPlay() throws Exception {
+		var roundRobin = tournament().roundRobin(
+				List.of(FirstMoveAi::new, MrXOnlyAi::new, FirstMoveAi::new), 2);
+		var results = roundRobin.results;
+		assertThat(results).hasSize(1);
+		assertThat(results.get(0).first).isEqualTo("First");
+		assertThat(results.get(0).second).isEqualTo("First");
+		assertThat(results.get(0).pairs()).isEqualTo(2);
+		assertThat(roundRobin.skipped).hasSize(2);
+		assertThat(roundRobin.skipped.get(0).first).isEqualTo(0);
+		assertThat(roundRobin.skipped.get(0).second).isEqualTo(1);
+		assertThat(roundRobin.skipped.get(1).first).isEqualTo(1);
+		assertThat(roundRobin.skipped.get(1).second).isEqualTo(2);
+		assertThat(roundRobin.skipped.get(1).cause.getMessage()).isEqualTo("Can't play the detectives");
+	}
+
+	@Test public void testRatingsOfARoundRobinAverageToZero() throws IOException {
+		var ab = new MatchResult("a", "b");
+		var ac = new MatchResult("a", "c");
+		var bc = new MatchResult("b", "c");
+		for (int i = 0; i < 10; i++) {
+			ab.add(true, i < 5);
+			ac.add(true, false);
+			bc.add(i < 7, i < 4);
+		}
+		double[] ratings = Tournament.ratings(List.of("a", "b", "c"), List.of(ab, ac, bc));
+		assertThat(Math.abs(ratings[0] + ratings[1] + ratings[2]) < 1e-9).isTrue();
+		assertThat(ratings[0] > ratings[1] && ratings[1] > ratings[2]).isTrue();
+	}
+}
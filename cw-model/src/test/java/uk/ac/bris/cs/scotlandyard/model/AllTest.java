@@ -3,6 +3,12 @@ package uk.ac.bris.cs.scotlandyard.model;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import uk.ac.bris.cs.scotlandyard.headless.HeadlessRunnerTest;
+import uk.ac.bris.cs.scotlandyard.headless.MapGeneratorTest;
+import uk.ac.bris.cs.scotlandyard.headless.PerftTest;
+import uk.ac.bris.cs.scotlandyard.headless.TournamentTest;
+import uk.ac.bris.cs.scotlandyard.ui.MapPyramidTest;
+
 /**
  * Includes all test for the actual game model
  */
@@ -15,6 +21,17 @@ import org.junit.runners.Suite;
 		GameStateDetectivesAvailableMovesTest.class,
 		GameStateMrXAvailableMovesTest.class,
 		GameStatePlayoutTest.class,
-		ModelObserverTest.class
+		ModelObserverTest.class,
+		CompiledGraphTest.class,
+		MappedGraphTest.class,
+		MoveCodecTest.class,
+		HeadlessRunnerTest.class,
+		TournamentTest.class,
+		PerftTest.class,
+		MapGeneratorTest.class,
+		GameSetupTest.class,
+		PlayerTest.class,
+		TravelLogTest.class,
+		MapPyramidTest.class
 })
 public class AllTest {}
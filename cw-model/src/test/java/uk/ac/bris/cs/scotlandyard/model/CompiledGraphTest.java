@@ -0,0 +1,64 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ValueGraphBuilder;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.STANDARD24ROUNDS;
+
+/**
+ * Tests the compiled graph matches the graph it was compiled from.
+ */
+public class CompiledGraphTest {
+
+	@Test public void testMatchesStandardGraph() throws IOException {
+		var graph = ScotlandYard.standardGraph();
+		var compiled = CompiledGraph.compile(graph);
+		assertThat(compiled.maxNode()).isEqualTo(199);
+		assertThat(compiled.edgeCount()).isEqualTo(graph.edges().size() * 2);
+		for (int node : graph.nodes()) {
+			var neighbours = new ArrayList<Integer>();
+			for (int i = compiled.start(node); i < compiled.end(node); i++) {
+				int neighbour = compiled.neighbour(i);
+				neighbours.add(neighbour);
+				int mask = 0;
+				for (Transport t : graph.edgeValueOrDefault(node, neighbour, ImmutableSet.of()))
+					mask |= CompiledGraph.mask(t);
+				assertThat(compiled.transports(i)).isEqualTo(mask);
+				assertThat(compiled.transports(node, neighbour)).isEqualTo(mask);
+			}
+			assertThat(neighbours).containsExactlyInAnyOrderElementsOf(graph.adjacentNodes(node));
+			assertThat(compiled.degree(node)).isEqualTo(graph.degree(node));
+		}
+	}
+
+	@Test public void testNeighboursInAscendingOrder() {
+		var compiled = CompiledGraph.compile(ValueGraphBuilder.undirected()
+				.<Integer, ImmutableSet<Transport>>immutable()
+				.putEdgeValue(2, 9, ImmutableSet.of(Transport.TAXI))
+				.putEdgeValue(2, 1, ImmutableSet.of(Transport.BUS, Transport.FERRY))
+				.putEdgeValue(2, 5, ImmutableSet.of(Transport.UNDERGROUND))
+				.build());
+		var neighbours = new ArrayList<Integer>();
+		for (int i = compiled.start(2); i < compiled.end(2); i++)
+			neighbours.add(compiled.neighbour(i));
+		assertThat(neighbours).containsExactly(1, 5, 9);
+		assertThat(compiled.transports(2, 1)).isEqualTo(
+				CompiledGraph.mask(Transport.BUS) | CompiledGraph.mask(Transport.FERRY));
+		assertThat(compiled.transports(1, 9)).isEqualTo(0);
+		assertThat(compiled.degree(3)).isEqualTo(0);
+	}
+
+	@Test public void testCompiledOncePerSetup() throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), STANDARD24ROUNDS);
+		assertThat(CompiledGraph.of(setup)).isSameAs(CompiledGraph.of(setup));
+	}
+
+}
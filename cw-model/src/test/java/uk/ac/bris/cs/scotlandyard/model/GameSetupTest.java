@@ -0,0 +1,60 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+import com.google.common.graph.ValueGraphBuilder;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.STANDARD24ROUNDS;
+
+/**
+ * Tests setup equality matches its content and interning shares one instance.
+ */
+public class GameSetupTest {
+
+	private static ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph(Transport last) {
+		return ValueGraphBuilder.undirected()
+				.<Integer, ImmutableSet<Transport>>immutable()
+				.putEdgeValue(1, 2, ImmutableSet.of(Transport.TAXI, Transport.BUS))
+				.putEdgeValue(3, 2, ImmutableSet.of(Transport.UNDERGROUND))
+				.putEdgeValue(3, 4, ImmutableSet.of(last))
+				.build();
+	}
+
+	@Test public void testEqualContentIsEqual() {
+		// same edges added in another order and direction
+		var reordered = ValueGraphBuilder.undirected()
+				.<Integer, ImmutableSet<Transport>>immutable()
+				.putEdgeValue(4, 3, ImmutableSet.of(Transport.TAXI))
+				.putEdgeValue(2, 3, ImmutableSet.of(Transport.UNDERGROUND))
+				.putEdgeValue(2, 1, ImmutableSet.of(Transport.BUS, Transport.TAXI))
+				.build();
+		var first = new GameSetup(graph(Transport.TAXI), STANDARD24ROUNDS);
+		var second = new GameSetup(reordered, ImmutableList.copyOf(STANDARD24ROUNDS));
+		assertThat(first).isEqualTo(second);
+		assertThat(first.hashCode()).isEqualTo(second.hashCode());
+	}
+
+	@Test public void testDifferentContentIsNotEqual() {
+		var setup = new GameSetup(graph(Transport.TAXI), STANDARD24ROUNDS);
+		assertThat(setup).isNotEqualTo(new GameSetup(graph(Transport.BUS), STANDARD24ROUNDS));
+		assertThat(setup).isNotEqualTo(new GameSetup(graph(Transport.TAXI), ImmutableList.of(true)));
+		assertThat(setup).isNotEqualTo(new GameSetup(graph(Transport.TAXI),
+				STANDARD24ROUNDS.subList(1, STANDARD24ROUNDS.size())));
+	}
+
+	@Test public void testInternReturnsOneInstance() throws IOException {
+		var first = new GameSetup(ScotlandYard.standardGraph(), STANDARD24ROUNDS).intern();
+		var second = new GameSetup(ScotlandYard.standardGraph(), STANDARD24ROUNDS);
+		assertThat(second.intern()).isSameAs(first);
+		assertThat(first.intern()).isSameAs(first);
+		assertThat(CompiledGraph.of(second)).isSameAs(CompiledGraph.of(first));
+	}
+}
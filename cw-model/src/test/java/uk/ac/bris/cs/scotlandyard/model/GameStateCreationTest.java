@@ -89,6 +89,21 @@ public class GameStateCreationTest extends ParameterisedModelTestBase {
 				new Player(GREEN, defaultDetectiveTickets(), 42));
 	}
 
+	@Test(expected = IllegalArgumentException.class)
+	public void testMrXOffTheMapShouldThrow() {
+		gameStateFactory.build(standard24RoundSetup(),
+				new Player(MRX, defaultMrXTickets(), 500),
+				new Player(BLUE, defaultDetectiveTickets(), 42));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDetectiveOnMissingNodeShouldThrow() {
+		// node 0 is within the range of the standard map's node ids but isn't on it
+		gameStateFactory.build(standard24RoundSetup(),
+				new Player(MRX, defaultMrXTickets(), 41),
+				new Player(BLUE, defaultDetectiveTickets(), 0));
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void testDetectiveHaveSecretTicketShouldThrow() {
 		gameStateFactory.build(standard24RoundSetup(),
@@ -0,0 +1,98 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+import com.google.common.graph.ValueGraphBuilder;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.STANDARD24ROUNDS;
+
+/**
+ * Tests a graph survives the trip through the binary format.
+ */
+public class MappedGraphTest {
+
+	private static MappedGraph roundTrip(ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph)
+			throws IOException {
+		Path file = Files.createTempFile("graph", ".bin");
+		try {
+			MappedGraph.write(graph, file);
+			return MappedGraph.map(file);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test public void testStandardGraphRoundTrips() throws IOException {
+		var graph = ScotlandYard.standardGraph();
+		var mapped = roundTrip(graph);
+		assertThat(mapped.nodes()).hasSize(199);
+		assertThat(mapped.edges()).hasSize(graph.edges().size());
+		assertThat(ImmutableValueGraph.copyOf(mapped).equals(graph)).isTrue();
+		for (int node : graph.nodes())
+			for (int neighbour : graph.adjacentNodes(node))
+				assertThat(mapped.edgeValueOrDefault(node, neighbour, null))
+						.isEqualTo(graph.edgeValueOrDefault(node, neighbour, null));
+	}
+
+	@Test public void testCompiledMatchesCompilingTheGraph() throws IOException {
+		var graph = ScotlandYard.standardGraph();
+		var compiled = CompiledGraph.compile(graph);
+		var copied = roundTrip(graph).compiled();
+		assertThat(copied.maxNode()).isEqualTo(compiled.maxNode());
+		assertThat(copied.edgeCount()).isEqualTo(compiled.edgeCount());
+		for (int node = 0; node <= compiled.maxNode(); node++) {
+			assertThat(copied.start(node)).isEqualTo(compiled.start(node));
+			assertThat(copied.end(node)).isEqualTo(compiled.end(node));
+		}
+		for (int i = 0; i < compiled.edgeCount(); i++) {
+			assertThat(copied.neighbour(i)).isEqualTo(compiled.neighbour(i));
+			assertThat(copied.transports(i)).isEqualTo(compiled.transports(i));
+		}
+	}
+
+	@Test public void testIsolatedNodesAndMissingEdges() throws IOException {
+		var mapped = roundTrip(ValueGraphBuilder.undirected()
+				.<Integer, ImmutableSet<Transport>>immutable()
+				.addNode(7)
+				.putEdgeValue(2, 5, ImmutableSet.of(Transport.BUS, Transport.FERRY))
+				.build());
+		assertThat(mapped.nodes()).containsExactly(2, 5, 7);
+		assertThat(mapped.degree(7)).isEqualTo(0);
+		assertThat(mapped.hasEdgeConnecting(5, 2)).isTrue();
+		assertThat(mapped.hasEdgeConnecting(2, 7)).isFalse();
+		assertThat(mapped.hasEdgeConnecting(3, 2)).isFalse();
+		assertThat(mapped.edgeValueOrDefault(2, 7, ImmutableSet.of())).isEqualTo(ImmutableSet.of());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownNodeThrows() throws IOException {
+		roundTrip(ScotlandYard.standardGraph()).adjacentNodes(200);
+	}
+
+	@Test(expected = IOException.class)
+	public void testRejectsOtherFiles() throws IOException {
+		Path file = Files.createTempFile("graph", ".txt");
+		try {
+			Files.writeString(file, "199 467\n");
+			MappedGraph.map(file);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test public void testSetupIsPrecompiled() throws IOException {
+		var graph = ScotlandYard.standardGraph();
+		var setup = roundTrip(graph).setup(STANDARD24ROUNDS);
+		assertThat(setup).isEqualTo(new GameSetup(graph, STANDARD24ROUNDS));
+		assertThat(setup.compiledGraph).isNotNull();
+	}
+}
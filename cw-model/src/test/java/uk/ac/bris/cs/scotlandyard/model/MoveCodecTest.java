@@ -0,0 +1,97 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Objects;
+
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.YELLOW;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.STANDARD24ROUNDS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.UNDERGROUND;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests moves survive a round trip through {@link MoveCodec} and the primitive move collections.
+ */
+public class MoveCodecTest {
+
+	private static Board.GameState standardState() throws IOException {
+		return new MyGameStateFactory().build(
+				new GameSetup(ScotlandYard.standardGraph(), STANDARD24ROUNDS),
+				new Player(MRX, defaultMrXTickets(), 106),
+				ImmutableList.of(new Player(BLUE, defaultDetectiveTickets(), 94),
+						new Player(YELLOW, defaultDetectiveTickets(), 138)));
+	}
+
+	@Test public void testRoundTripsEveryAvailableMove() throws IOException {
+		var state = standardState();
+		var encoded = new HashSet<Long>();
+		for (Move move : state.getAvailableMoves()) {
+			long value = MoveCodec.encode(move);
+			assertThat(MoveCodec.decode(value)).isEqualTo(move);
+			assertThat(MoveCodec.piece(value)).isEqualTo(move.commencedBy());
+			assertThat(MoveCodec.source(value)).isEqualTo(move.source());
+			encoded.add(value);
+		}
+		assertThat(encoded).hasSize(state.getAvailableMoves().size());
+	}
+
+	@Test public void testDecodesFields() {
+		long single = MoveCodec.single(YELLOW, 138, BUS, 199);
+		assertThat(MoveCodec.isDouble(single)).isFalse();
+		assertThat(MoveCodec.ticket1(single)).isEqualTo(BUS);
+		assertThat(MoveCodec.destination(single)).isEqualTo(199);
+
+		long x2 = MoveCodec.doubleMove(MRX, 1, SECRET, 2, UNDERGROUND, MoveCodec.MAX_NODE);
+		assertThat(MoveCodec.isDouble(x2)).isTrue();
+		assertThat(MoveCodec.ticket1(x2)).isEqualTo(SECRET);
+		assertThat(MoveCodec.destination1(x2)).isEqualTo(2);
+		assertThat(MoveCodec.ticket2(x2)).isEqualTo(UNDERGROUND);
+		assertThat(MoveCodec.destination(x2)).isEqualTo(MoveCodec.MAX_NODE);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNodeOutOfRangeShouldThrow() {
+		MoveCodec.single(MRX, 1, TAXI, MoveCodec.MAX_NODE + 1);
+	}
+
+	@Test public void testMoveListAndSetMatchAvailableMoves() throws IOException {
+		var state = standardState();
+		var list = MoveList.of(state);
+		var set = MoveSet.of(state);
+		assertThat(list.size()).isEqualTo(state.getAvailableMoves().size());
+		assertThat(set.size()).isEqualTo(state.getAvailableMoves().size());
+		assertThat(list.toMoves()).containsExactlyElementsOf(state.getAvailableMoves());
+		for (int i = 0; i < list.size(); i++) assertThat(set.contains(list.get(i))).isTrue();
+		assertThat(set.contains(MoveCodec.single(MRX, 106, TAXI, 1))).isFalse();
+		assertThat(set.add(list.get(0))).isFalse();
+
+		var sorted = set.toList();
+		sorted.sort();
+		list.sort();
+		assertThat(sorted.toArray()).isEqualTo(list.toArray());
+		list.clear();
+		assertThat(list.isEmpty()).isTrue();
+	}
+
+	@Test public void testHashCodeMatchesObjectsHash() {
+		var single = new SingleMove(MRX, 106, TAXI, 105);
+		assertThat(single.hashCode()).isEqualTo(Objects.hash(MRX, TAXI, 105));
+		var x2 = new DoubleMove(MRX, 106, TAXI, 105, BUS, 87);
+		assertThat(x2.hashCode()).isEqualTo(Objects.hash(MRX, TAXI, 105, BUS, 87));
+	}
+
+}
@@ -0,0 +1,55 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+
+/**
+ * Tests players use and give tickets like the ticket map they were made from.
+ */
+public class PlayerTest {
+
+	private static Player mrX(int taxi, int doubles, int secret) {
+		return new Player(MRX, ImmutableMap.of(
+				Ticket.TAXI, taxi, Ticket.DOUBLE, doubles, Ticket.SECRET, secret), 1);
+	}
+
+	@Test public void testUseAndGiveUpdateTheTicketView() {
+		var player = mrX(3, 1, 0).use(Ticket.TAXI).give(Ticket.SECRET);
+		assertThat(player.tickets()).isEqualTo(ImmutableMap.of(
+				Ticket.TAXI, 2, Ticket.DOUBLE, 1, Ticket.SECRET, 1));
+		assertThat(player.count(Ticket.TAXI)).isEqualTo(2);
+		assertThat(player).isEqualTo(mrX(2, 1, 1));
+		assertThat(player.hashCode()).isEqualTo(mrX(2, 1, 1).hashCode());
+	}
+
+	@Test public void testBulkUseMatchesOneAtATime() {
+		var tickets = ImmutableList.of(Ticket.DOUBLE, Ticket.TAXI, Ticket.SECRET);
+		var player = mrX(3, 1, 2);
+		assertThat(player.use(tickets))
+				.isEqualTo(player.use(Ticket.DOUBLE).use(Ticket.TAXI).use(Ticket.SECRET));
+		assertThat(player.use(tickets).give(tickets)).isEqualTo(player);
+		assertThat(player.use(ImmutableList.of())).isSameAs(player);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBulkUseOfTooFewThrows() {
+		mrX(1, 0, 0).use(ImmutableList.of(Ticket.TAXI, Ticket.TAXI));
+	}
+
+	@Test public void testTicketsNotInTheMapStayOut() {
+		var detective = new Player(RED, ImmutableMap.of(Ticket.TAXI, 1), 1);
+		assertThat(detective.has(Ticket.BUS)).isFalse();
+		assertThat(detective.give(Ticket.BUS).tickets()).isEqualTo(ImmutableMap.of(Ticket.TAXI, 1));
+		assertThat(detective.at(2).tickets()).isEqualTo(ImmutableMap.of(Ticket.TAXI, 1));
+		assertThat(new Player(RED, ImmutableMap.of(Ticket.TAXI, 1, Ticket.BUS, 0), 1))
+				.isNotEqualTo(detective);
+	}
+}
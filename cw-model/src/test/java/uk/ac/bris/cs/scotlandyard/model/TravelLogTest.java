@@ -0,0 +1,50 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the travel log shares entries between branches and log entries are interned.
+ */
+public class TravelLogTest {
+
+	@Test public void testBranchesShareEarlierEntries() {
+		var hidden = LogEntry.hidden(Ticket.TAXI);
+		var base = TravelLog.EMPTY.append(hidden).append(LogEntry.reveal(Ticket.BUS, 13));
+		var left = base.append(LogEntry.hidden(Ticket.SECRET));
+		var right = base.append(LogEntry.reveal(Ticket.UNDERGROUND, 67));
+		assertThat(right.asList()).isEqualTo(ImmutableList.of(hidden,
+				LogEntry.reveal(Ticket.BUS, 13), LogEntry.reveal(Ticket.UNDERGROUND, 67)));
+		assertThat(left.asList()).isEqualTo(ImmutableList.of(hidden,
+				LogEntry.reveal(Ticket.BUS, 13), LogEntry.hidden(Ticket.SECRET)));
+		assertThat(base.asList()).hasSize(2);
+		assertThat(left.asList()).isSameAs(left.asList());
+		assertThat(TravelLog.EMPTY.asList()).isEmpty();
+	}
+
+	@Test public void testListBuiltFromAnEarlierList() {
+		var log = TravelLog.EMPTY;
+		for (int i = 1; i <= 10; i++) {
+			log = log.append(LogEntry.reveal(Ticket.TAXI, i));
+			if (i == 4) assertThat(log.asList()).hasSize(4);
+		}
+		assertThat(log.size()).isEqualTo(10);
+		assertThat(log.asList().get(9)).isEqualTo(LogEntry.reveal(Ticket.TAXI, 10));
+		assertThat(log.asList().get(3)).isEqualTo(LogEntry.reveal(Ticket.TAXI, 4));
+	}
+
+	@Test public void testEntriesAreInterned() {
+		assertThat(LogEntry.hidden(Ticket.DOUBLE)).isSameAs(LogEntry.hidden(Ticket.DOUBLE));
+		assertThat(LogEntry.reveal(Ticket.TAXI, 0)).isSameAs(LogEntry.reveal(Ticket.TAXI, 0));
+		assertThat(LogEntry.reveal(Ticket.BUS, 199)).isSameAs(LogEntry.reveal(Ticket.BUS, 199));
+		assertThat(LogEntry.reveal(Ticket.BUS, 5000)).isSameAs(LogEntry.reveal(Ticket.BUS, 5000));
+		assertThat(LogEntry.reveal(Ticket.BUS, 199)).isNotEqualTo(LogEntry.reveal(Ticket.TAXI, 199));
+		assertThat(LogEntry.reveal(Ticket.SECRET, 1 << 20).location()).contains(1 << 20);
+		assertThat(LogEntry.reveal(Ticket.SECRET, -5).location()).contains(-5);
+	}
+}
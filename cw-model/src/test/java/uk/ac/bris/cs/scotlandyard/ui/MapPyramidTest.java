@@ -0,0 +1,94 @@
+package uk.ac.bris.cs.scotlandyard.ui;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests pyramid tiles hold the right pixels of the image.
+ */
+public class MapPyramidTest {
+
+	private static final int WIDTH = 1000, HEIGHT = 700, TILE = 128;
+
+	private static int pixel(int x, int y) { return 0xFF000000 | (x & 0xFF) << 16 | (y & 0xFF) << 8 | (x ^ y) & 0xFF; }
+
+	// lossless, so every pixel can be checked exactly
+	private static MapPyramid pyramid() throws IOException {
+		var image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < HEIGHT; y++)
+			for (int x = 0; x < WIDTH; x++) image.setRGB(x, y, pixel(x, y));
+		var bytes = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", bytes);
+		return new MapPyramid(bytes.toByteArray(), TILE);
+	}
+
+	@Test public void testLevels() throws IOException {
+		var pyramid = pyramid();
+		assertThat(pyramid.width()).isEqualTo(WIDTH);
+		assertThat(pyramid.height()).isEqualTo(HEIGHT);
+		// 1000 -> 500 -> 250, the first to fit in two tiles
+		assertThat(pyramid.previewLevel()).isEqualTo(2);
+		assertThat(pyramid.width(1)).isEqualTo(500);
+		assertThat(pyramid.height(2)).isEqualTo(175);
+		assertThat(pyramid.columns(0)).isEqualTo(8);
+		assertThat(pyramid.rows(0)).isEqualTo(6);
+		assertThat(pyramid.columns(2)).isEqualTo(2);
+	}
+
+	@Test public void testLevelForScale() throws IOException {
+		var pyramid = pyramid();
+		assertThat(pyramid.levelFor(2)).isEqualTo(0);
+		assertThat(pyramid.levelFor(1)).isEqualTo(0);
+		assertThat(pyramid.levelFor(0.6)).isEqualTo(0);
+		assertThat(pyramid.levelFor(0.5)).isEqualTo(1);
+		assertThat(pyramid.levelFor(0.3)).isEqualTo(1);
+		assertThat(pyramid.levelFor(0.01)).isEqualTo(2);
+	}
+
+	@Test public void testRowTilesHoldSubsampledPixels() throws IOException {
+		var pyramid = pyramid();
+		for (int level = 0; level <= pyramid.previewLevel(); level++) {
+			int scale = MapPyramid.scale(level);
+			int lastRow = pyramid.rows(level) - 1, lastColumn = pyramid.columns(level) - 1;
+			var tiles = pyramid.decodeRow(level, lastRow, 0, lastColumn);
+			assertThat(tiles).hasSize(lastColumn + 1);
+			for (var tile : tiles) {
+				assertThat(tile.column * TILE + tile.width).isLessThanOrEqualTo(pyramid.width(level));
+				assertThat(lastRow * TILE + tile.height).isEqualTo(pyramid.height(level));
+				for (int y = 0; y < tile.height; y++)
+					for (int x = 0; x < tile.width; x++)
+						assertThat(tile.argb[y * tile.width + x]).isEqualTo(
+								pixel((tile.column * TILE + x) * scale, (lastRow * TILE + y) * scale));
+			}
+			assertThat(tiles.get(lastColumn).width).isEqualTo(pyramid.width(level) - lastColumn * TILE);
+		}
+	}
+
+	@Test public void testSingleTile() throws IOException {
+		var tile = pyramid().decodeRow(0, 1, 3, 3).get(0);
+		assertThat(tile.width).isEqualTo(TILE);
+		assertThat(tile.height).isEqualTo(TILE);
+		assertThat(tile.argb[0]).isEqualTo(pixel(3 * TILE, TILE));
+	}
+
+	@Test public void testPreviewIsWholeTopLevel() throws IOException {
+		var pyramid = pyramid();
+		var preview = pyramid.decodePreview();
+		assertThat(preview.width).isEqualTo(250);
+		assertThat(preview.height).isEqualTo(175);
+		assertThat(preview.argb[preview.width * 10 + 20]).isEqualTo(pixel(80, 40));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTilesOutsideLevelThrow() throws IOException {
+		var pyramid = pyramid();
+		pyramid.decodeRow(1, 0, 0, pyramid.columns(1));
+	}
+}